@@ -0,0 +1,34 @@
+package com.hmdp.benchmark;
+
+import org.openjdk.jmh.Main;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+/**
+ * benchmarks.jar的入口, 参数与JMH命令行相同
+ * 未指定结果格式时以JSON输出到jmh-result.json, 用CompareResults与基线比较
+ * <pre>
+ * java -jar benchmarks/target/benchmarks.jar CacheClientBenchmark -rff baseline.json
+ * java -cp benchmarks/target/benchmarks.jar com.hmdp.benchmark.CompareResults baseline.json jmh-result.json
+ * </pre>
+ */
+public class BenchmarkRunner {
+
+    private static final String RESULT_FORMAT = "-rf";
+    private static final String RESULT_FILE = "-rff";
+
+    public static void main(String[] args) throws Exception {
+        List<String> options = new ArrayList<>(Arrays.asList(args));
+        if (!options.contains(RESULT_FORMAT)) {
+            options.add(RESULT_FORMAT);
+            options.add("json");
+        }
+        if (!options.contains(RESULT_FILE)) {
+            options.add(RESULT_FILE);
+            options.add("jmh-result.json");
+        }
+        Main.main(options.toArray(new String[0]));
+    }
+}
@@ -0,0 +1,85 @@
+package com.hmdp.benchmark;
+
+import cn.hutool.core.util.ReflectUtil;
+import com.hmdp.entity.Shop;
+import com.hmdp.utils.*;
+import org.openjdk.jmh.annotations.*;
+
+import java.util.concurrent.TimeUnit;
+
+import static com.hmdp.utils.RedisConstants.CACHE_SHOP_KEY;
+
+/**
+ * CacheClient的读路径, 分别测量本地缓存命中和本地缓存未命中、redis命中两种情况
+ * 本地缓存未命中时的耗时包括一次GET和解码, 按codec参数比较JSON和二进制格式
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class CacheClientBenchmark {
+
+    private static final String PASS_THROUGH_PREFIX = "bench:shop:";
+    private static final Long SHOP_ID = 1L;
+
+    @Param({"json", "binary"})
+    private String codec;
+
+    private EmbeddedRedis redis;
+    private NearCache nearCache;
+    private CacheClient cacheClient;
+
+    @Setup(Level.Trial)
+    public void setup() {
+        redis = EmbeddedRedis.start();
+        HotKeyDetector hotKeyDetector = new HotKeyDetector();
+        ReflectUtil.setFieldValue(hotKeyDetector, "threshold", 500L);
+        nearCache = new NearCache(redis.template(), hotKeyDetector);
+        // 未初始化的布隆过滤器对所有id返回true
+        cacheClient = new CacheClient(redis.template(), nearCache, new BloomFilterRegistry(),
+                new CacheRebuildExecutor(), new VersionedCacheCodec(codec));
+
+        Shop shop = BenchmarkData.shop(SHOP_ID);
+        cacheClient.set(PASS_THROUGH_PREFIX + SHOP_ID, shop, 30L, TimeUnit.MINUTES);
+        cacheClient.setWithLogicExpire(CACHE_SHOP_KEY + SHOP_ID, shop, 30L, 60L, TimeUnit.MINUTES);
+    }
+
+    @TearDown(Level.Trial)
+    public void tearDown() {
+        redis.stop();
+    }
+
+    @Benchmark
+    public Shop passThroughLocalHit() {
+        return queryWithPassThrough();
+    }
+
+    @Benchmark
+    public Shop passThroughRedisHit() {
+        nearCache.evict(PASS_THROUGH_PREFIX + SHOP_ID);
+        return queryWithPassThrough();
+    }
+
+    @Benchmark
+    public Shop logicExpireLocalHit() {
+        return queryWithLogicExpire();
+    }
+
+    @Benchmark
+    public Shop logicExpireRedisHit() {
+        nearCache.evict(CACHE_SHOP_KEY + SHOP_ID);
+        return queryWithLogicExpire();
+    }
+
+    private Shop queryWithPassThrough() {
+        return cacheClient.queryWithPassThrough(PASS_THROUGH_PREFIX, SHOP_ID, Shop.class,
+                BenchmarkData::shop, 30L, TimeUnit.MINUTES);
+    }
+
+    private Shop queryWithLogicExpire() {
+        return cacheClient.queryWithLogicExpire(CACHE_SHOP_KEY, SHOP_ID, Shop.class,
+                BenchmarkData::shop, 30L, TimeUnit.MINUTES);
+    }
+}
@@ -0,0 +1,49 @@
+package com.hmdp.benchmark;
+
+import com.hmdp.entity.Shop;
+import com.hmdp.utils.BinaryCacheCodec;
+import com.hmdp.utils.CacheCodec;
+import com.hmdp.utils.CacheEntry;
+import com.hmdp.utils.JsonCacheCodec;
+import org.openjdk.jmh.annotations.*;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * 缓存数据的JSON和二进制编解码, 编码后的字节数在setup时输出
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class CacheCodecBenchmark {
+
+    @Param({"json", "binary"})
+    private String codec;
+
+    private CacheCodec cacheCodec;
+    private Shop shop;
+    private long expireAt;
+    private byte[] encoded;
+
+    @Setup(Level.Trial)
+    public void setup() {
+        cacheCodec = "binary".equals(codec) ? new BinaryCacheCodec() : new JsonCacheCodec();
+        shop = BenchmarkData.shop(1L);
+        expireAt = System.currentTimeMillis() + TimeUnit.MINUTES.toMillis(30);
+        encoded = cacheCodec.encode(shop, expireAt);
+        System.out.println(codec + "编码后的字节数: " + encoded.length);
+    }
+
+    @Benchmark
+    public byte[] encode() {
+        return cacheCodec.encode(shop, expireAt);
+    }
+
+    @Benchmark
+    public CacheEntry<Shop> decode() {
+        return cacheCodec.decode(encoded, Shop.class, true);
+    }
+}
@@ -0,0 +1,80 @@
+package com.hmdp.benchmark;
+
+import cn.hutool.core.io.FileUtil;
+import cn.hutool.json.JSONArray;
+import cn.hutool.json.JSONObject;
+import cn.hutool.json.JSONUtil;
+
+import java.nio.charset.StandardCharsets;
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+/**
+ * 比较两次JMH的JSON结果, 性能下降超过阈值(默认10%)的测试以非0状态码退出, 可以用于CI
+ * 参数: 基线结果 本次结果 [阈值百分比]
+ */
+public class CompareResults {
+
+    public static void main(String[] args) {
+        if (args.length < 2) {
+            System.err.println("用法: CompareResults <baseline.json> <current.json> [阈值百分比]");
+            System.exit(2);
+        }
+        double threshold = args.length > 2 ? Double.parseDouble(args[2]) : 10;
+        Map<String, Score> baseline = load(args[0]);
+        Map<String, Score> current = load(args[1]);
+
+        int regressions = 0;
+        for (Map.Entry<String, Score> entry : current.entrySet()) {
+            Score base = baseline.get(entry.getKey());
+            if (base == null) {
+                System.out.printf("%-80s %14s -> %14.3f %s%n", entry.getKey(), "-", entry.getValue().value, entry.getValue().unit);
+                continue;
+            }
+            // 吞吐量越大越好, 耗时越小越好, 统一换算为提升的百分比
+            double change = (entry.getValue().value - base.value) / base.value * 100;
+            double improvement = entry.getValue().higherIsBetter() ? change : -change;
+            boolean regression = improvement < -threshold;
+            if (regression) {
+                regressions++;
+            }
+            System.out.printf("%-80s %14.3f -> %14.3f %s %+.1f%%%s%n", entry.getKey(), base.value,
+                    entry.getValue().value, entry.getValue().unit, improvement, regression ? "  <-- 性能下降" : "");
+        }
+        if (regressions > 0) {
+            System.out.println(regressions + "项性能下降超过" + threshold + "%");
+            System.exit(1);
+        }
+    }
+
+    // 测试名称加参数 -> 分数
+    private static Map<String, Score> load(String file) {
+        JSONArray results = JSONUtil.parseArray(FileUtil.readString(file, StandardCharsets.UTF_8));
+        Map<String, Score> scores = new LinkedHashMap<>();
+        for (int i = 0; i < results.size(); i++) {
+            JSONObject result = results.getJSONObject(i);
+            StringBuilder name = new StringBuilder(result.getStr("benchmark"));
+            JSONObject params = result.getJSONObject("params");
+            if (params != null) {
+                params.forEach((key, value) -> name.append(' ').append(key).append('=').append(value));
+            }
+            JSONObject metric = result.getJSONObject("primaryMetric");
+            scores.put(name.toString(), new Score(metric.getDouble("score"), metric.getStr("scoreUnit")));
+        }
+        return scores;
+    }
+
+    private static class Score {
+        private final double value;
+        private final String unit;
+
+        private Score(double value, String unit) {
+            this.value = value;
+            this.unit = unit;
+        }
+
+        private boolean higherIsBetter() {
+            return unit.startsWith("ops/");
+        }
+    }
+}
@@ -0,0 +1,76 @@
+package com.hmdp.benchmark;
+
+import com.hmdp.utils.IdGenerator;
+import com.hmdp.utils.RedisWorker;
+import org.openjdk.jmh.annotations.*;
+import org.springframework.data.redis.core.StringRedisTemplate;
+
+import java.time.LocalDateTime;
+import java.time.ZoneOffset;
+import java.time.format.DateTimeFormatter;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * RedisWorker.nextId: 每个id一次INCR(原RedisWorker的实现) / 号段模式 / 雪花算法
+ * 多线程竞争: java -jar benchmarks/target/benchmarks.jar IdGeneratorBenchmark -t 8
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class IdGeneratorBenchmark {
+
+    private static final String KEY_PREFIX = "order";
+
+    @Param({"incr", "segment", "snowflake"})
+    private String mode;
+
+    private EmbeddedRedis redis;
+    private IdGenerator idGenerator;
+
+    @Setup(Level.Trial)
+    public void setup() {
+        redis = EmbeddedRedis.start();
+        // segment和snowflake与线上一样通过RedisWorker创建
+        idGenerator = "incr".equals(mode)
+                ? new IncrIdGenerator(redis.template())
+                : new RedisWorker(redis.template(), mode);
+    }
+
+    @TearDown(Level.Trial)
+    public void tearDown() {
+        idGenerator.close();
+        redis.stop();
+    }
+
+    @Benchmark
+    public long nextId() {
+        return idGenerator.nextId(KEY_PREFIX);
+    }
+
+    /**
+     * 基线: 每个id执行一次INCR
+     */
+    static class IncrIdGenerator implements IdGenerator {
+
+        private static final long BEGIN_TIMESTAMP = 1705881600L;
+        private static final int COUNT_BITS = 32;
+
+        private final StringRedisTemplate stringRedisTemplate;
+
+        IncrIdGenerator(StringRedisTemplate stringRedisTemplate) {
+            this.stringRedisTemplate = stringRedisTemplate;
+        }
+
+        @Override
+        public long nextId(String keyPrefix) {
+            LocalDateTime now = LocalDateTime.now();
+            long timeStamp = now.toEpochSecond(ZoneOffset.UTC) - BEGIN_TIMESTAMP;
+            String date = now.format(DateTimeFormatter.ofPattern("yyyy:MM:dd"));
+            Long count = stringRedisTemplate.opsForValue().increment("icr:" + keyPrefix + ":" + date);
+            return timeStamp << COUNT_BITS | count;
+        }
+    }
+}
@@ -0,0 +1,120 @@
+package com.hmdp.benchmark;
+
+import cn.hutool.core.bean.BeanUtil;
+import cn.hutool.core.bean.copier.CopyOptions;
+import com.hmdp.dto.UserDTO;
+import com.hmdp.utils.RefreshTokenInterceptor;
+import com.hmdp.utils.UserHolder;
+import org.openjdk.jmh.annotations.*;
+import org.springframework.mock.web.MockHttpServletRequest;
+import org.springframework.mock.web.MockHttpServletResponse;
+
+import java.util.HashMap;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+
+import static com.hmdp.utils.RedisConstants.LOGIN_USER_KEY;
+import static com.hmdp.utils.RedisConstants.LOGIN_USER_TTL;
+
+/**
+ * 每个请求都会经过的登录用户解析: RefreshTokenInterceptor中的hash转换和UserHolder读写
+ * interceptor包含一次HGETALL和一次EXPIRE, 与不访问redis的部分分开测量
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class LoginUserBenchmark {
+
+    private static final String TOKEN = "bench-token";
+
+    private EmbeddedRedis redis;
+    private RefreshTokenInterceptor interceptor;
+    private Map<Object, Object> userMap;
+    private UserDTO user;
+
+    @Setup(Level.Trial)
+    public void setup() {
+        redis = EmbeddedRedis.start();
+        interceptor = new RefreshTokenInterceptor(redis.template());
+
+        // 与UserServiceImpl#login写入的格式一致
+        user = new UserDTO();
+        user.setId(1010L);
+        user.setNickName("user_slxaxy2au9f3tanffaxr");
+        user.setIcon("/imgs/icons/kbCZ1bY9TBj2yLuiz7aQ.jpg");
+        Map<String, Object> map = BeanUtil.beanToMap(user, new HashMap<>(), CopyOptions.create()
+                .setIgnoreNullValue(true)
+                .setFieldValueEditor((fieldName, fieldValue) -> fieldValue.toString()));
+        redis.template().opsForHash().putAll(LOGIN_USER_KEY + TOKEN, map);
+        redis.template().expire(LOGIN_USER_KEY + TOKEN, LOGIN_USER_TTL, TimeUnit.MINUTES);
+        userMap = redis.template().opsForHash().entries(LOGIN_USER_KEY + TOKEN);
+    }
+
+    @TearDown(Level.Trial)
+    public void tearDown() {
+        redis.stop();
+    }
+
+    // RefreshTokenInterceptor第5步
+    @Benchmark
+    public UserDTO fillBeanWithMap() {
+        return BeanUtil.fillBeanWithMap(userMap, new UserDTO(), false);
+    }
+
+    // 对照: 不使用反射的转换
+    @Benchmark
+    public UserDTO manualMapping() {
+        UserDTO userDTO = new UserDTO();
+        userDTO.setId(Long.valueOf((String) userMap.get("id")));
+        userDTO.setNickName((String) userMap.get("nickName"));
+        userDTO.setIcon((String) userMap.get("icon"));
+        return userDTO;
+    }
+
+    // 一次请求中UserHolder的完整使用过程
+    @Benchmark
+    public UserDTO userHolder() {
+        UserHolder.saveUser(user);
+        UserDTO current = UserHolder.getUser();
+        UserHolder.removeUser();
+        return current;
+    }
+
+    @Benchmark
+    public UserDTO userHolderGet(HolderState state) {
+        return UserHolder.getUser();
+    }
+
+    // 拦截器完整流程, 包含redis访问
+    @Benchmark
+    public boolean interceptor() throws Exception {
+        MockHttpServletRequest request = new MockHttpServletRequest();
+        request.addHeader("authorization", TOKEN);
+        MockHttpServletResponse response = new MockHttpServletResponse();
+        boolean result = interceptor.preHandle(request, response, null);
+        interceptor.afterCompletion(request, response, null, null);
+        return result;
+    }
+
+    /**
+     * 每个线程预先保存用户, 只测量读取
+     */
+    @State(Scope.Thread)
+    public static class HolderState {
+
+        @Setup(Level.Iteration)
+        public void setup() {
+            UserDTO userDTO = new UserDTO();
+            userDTO.setId(1010L);
+            UserHolder.saveUser(userDTO);
+        }
+
+        @TearDown(Level.Iteration)
+        public void tearDown() {
+            UserHolder.removeUser();
+        }
+    }
+}
@@ -0,0 +1,92 @@
+package com.hmdp.benchmark;
+
+import com.hmdp.utils.SeckillBuckets;
+import org.openjdk.jmh.annotations.*;
+import org.springframework.core.io.ClassPathResource;
+import org.springframework.data.redis.core.StringRedisTemplate;
+import org.springframework.data.redis.core.script.DefaultRedisScript;
+
+import java.time.LocalDateTime;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * 秒杀下单的lua脚本, 与VoucherOrderServiceImpl使用相同的脚本文件和key
+ * order: 每次使用新用户, 走完整的下单路径; duplicate: 同一个用户重复下单, 在一人一单判断处返回
+ * take: 主桶库存不足时从其他桶扣减库存
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class SeckillScriptBenchmark {
+
+    private static final Long VOUCHER_ID = 1L;
+    private static final int BUCKET = 0;
+    // 足够整个测试过程扣减
+    private static final String STOCK = String.valueOf(Integer.MAX_VALUE);
+
+    // seckill.lua返回{结果, epoch}
+    @SuppressWarnings("rawtypes")
+    private static final DefaultRedisScript<List> SECKILL_SCRIPT = script("seckill.lua", List.class);
+    private static final DefaultRedisScript<Long> TAKE_SCRIPT = script("seckill-take.lua", Long.class);
+
+    private EmbeddedRedis redis;
+    private StringRedisTemplate stringRedisTemplate;
+    private List<String> seckillKeys;
+    private List<String> takeKeys;
+    private final AtomicLong userId = new AtomicLong();
+    private final AtomicLong orderId = new AtomicLong();
+
+    @Setup(Level.Trial)
+    public void setup() {
+        redis = EmbeddedRedis.start();
+        stringRedisTemplate = redis.template();
+        stringRedisTemplate.opsForValue().set(SeckillBuckets.stockKey(VOUCHER_ID, BUCKET), STOCK);
+        LocalDateTime now = LocalDateTime.now();
+        stringRedisTemplate.opsForHash().putAll(SeckillBuckets.timeKey(VOUCHER_ID, BUCKET),
+                SeckillBuckets.timeFields(now.minusDays(1), now.plusDays(1)));
+        seckillKeys = Arrays.asList(SeckillBuckets.stockKey(VOUCHER_ID, BUCKET), SeckillBuckets.orderKey(VOUCHER_ID, BUCKET),
+                SeckillBuckets.streamKey(BUCKET), SeckillBuckets.timeKey(VOUCHER_ID, BUCKET));
+        takeKeys = Arrays.asList(SeckillBuckets.stockKey(VOUCHER_ID, BUCKET), SeckillBuckets.streamKey(BUCKET));
+        // duplicate使用的用户
+        seckill(0L);
+    }
+
+    @TearDown(Level.Trial)
+    public void tearDown() {
+        redis.stop();
+    }
+
+    @Benchmark
+    public List<?> order() {
+        return seckill(userId.incrementAndGet());
+    }
+
+    @Benchmark
+    public List<?> duplicate() {
+        return seckill(0L);
+    }
+
+    @Benchmark
+    public Long take() {
+        return stringRedisTemplate.execute(TAKE_SCRIPT, takeKeys,
+                VOUCHER_ID.toString(), String.valueOf(userId.incrementAndGet()), String.valueOf(orderId.incrementAndGet()));
+    }
+
+    private List<?> seckill(Long user) {
+        return stringRedisTemplate.execute(SECKILL_SCRIPT, seckillKeys,
+                VOUCHER_ID.toString(), user.toString(), String.valueOf(orderId.incrementAndGet()));
+    }
+
+    private static <T> DefaultRedisScript<T> script(String location, Class<T> resultType) {
+        DefaultRedisScript<T> script = new DefaultRedisScript<>();
+        script.setLocation(new ClassPathResource(location));
+        script.setResultType(resultType);
+        return script;
+    }
+}
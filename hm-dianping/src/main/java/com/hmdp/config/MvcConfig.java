@@ -25,8 +25,11 @@ public class MvcConfig implements WebMvcConfigurer {
                                             "/blog/hot",
                                             "/shop/**",
                                             "/shop-type/**",
-                                            "/voucher/**",
-                                            "/upload/**").order(1);
+                                            "/voucher",
+                                            "/voucher/seckill",
+                                            "/voucher/list/**",
+                                            "/upload/**",
+                                            "/actuator/**").order(1);
         // 刷新拦截器
         registry.addInterceptor(new RefreshTokenInterceptor(stringRedisTemplate)).
                 addPathPatterns("/**").
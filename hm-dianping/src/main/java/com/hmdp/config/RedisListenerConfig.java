@@ -0,0 +1,40 @@
+package com.hmdp.config;
+
+import com.hmdp.utils.BloomFilterRegistry;
+import com.hmdp.utils.NearCache;
+import com.hmdp.utils.RedisLockRegistry;
+import com.hmdp.utils.SoldOutRegistry;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.data.redis.connection.RedisConnectionFactory;
+import org.springframework.data.redis.listener.ChannelTopic;
+import org.springframework.data.redis.listener.PatternTopic;
+import org.springframework.data.redis.listener.RedisMessageListenerContainer;
+
+import static com.hmdp.utils.RedisConstants.BLOOM_ADD_CHANNEL;
+import static com.hmdp.utils.RedisConstants.CACHE_INVALIDATE_CHANNEL;
+import static com.hmdp.utils.RedisConstants.LOCK_CHANNEL;
+import static com.hmdp.utils.RedisConstants.SECKILL_SOLD_OUT_CHANNEL;
+
+@Configuration
+public class RedisListenerConfig {
+
+    @Bean
+    public RedisMessageListenerContainer redisMessageListenerContainer(RedisConnectionFactory connectionFactory,
+                                                                       NearCache nearCache,
+                                                                       BloomFilterRegistry bloomFilterRegistry,
+                                                                       SoldOutRegistry soldOutRegistry,
+                                                                       RedisLockRegistry redisLockRegistry) {
+        RedisMessageListenerContainer container = new RedisMessageListenerContainer();
+        container.setConnectionFactory(connectionFactory);
+        // 本地缓存失效通知
+        container.addMessageListener(nearCache, new ChannelTopic(CACHE_INVALIDATE_CHANNEL));
+        // 布隆过滤器新增id通知
+        container.addMessageListener(bloomFilterRegistry, new ChannelTopic(BLOOM_ADD_CHANNEL));
+        // 秒杀券售罄及补充库存通知
+        container.addMessageListener(soldOutRegistry, new ChannelTopic(SECKILL_SOLD_OUT_CHANNEL));
+        // 分布式锁释放通知
+        container.addMessageListener(redisLockRegistry, new PatternTopic(LOCK_CHANNEL + "*"));
+        return container;
+    }
+}
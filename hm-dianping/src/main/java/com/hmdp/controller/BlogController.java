@@ -58,6 +58,12 @@ public class BlogController {
         return blogService.queryHotBlog(current);
     }
 
+    @GetMapping("/hot/scroll")
+    public Result queryHotBlogScroll(@RequestParam(value = "max", required = false) Double max,
+                                     @RequestParam(value = "offset", defaultValue = "0") Integer offset) {
+        return blogService.queryHotBlogScroll(max, offset);
+    }
+
     @GetMapping("/{id}")
     public Result queryBlogById(@PathVariable("id") Long id) {
         return blogService.queryBlogById(id);
@@ -84,4 +90,9 @@ public class BlogController {
     public Result queryBlogOfFollow(@RequestParam("lastId") Long max, @RequestParam(value = "offset", defaultValue = "0") Integer offset){
         return blogService.queryBlogOfFollow(max, offset);
     }
+
+    @GetMapping("/feed/stats")
+    public Result queryFeedStats() {
+        return Result.ok(blogService.queryFeedStats());
+    }
 }
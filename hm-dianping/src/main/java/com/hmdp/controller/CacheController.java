@@ -0,0 +1,84 @@
+package com.hmdp.controller;
+
+
+import com.hmdp.dto.Result;
+import com.hmdp.utils.BloomFilterRegistry;
+import com.hmdp.utils.CacheRebuildExecutor;
+import com.hmdp.utils.CacheWarmer;
+import com.hmdp.utils.HotKeyDetector;
+import com.hmdp.utils.NearCache;
+import org.springframework.web.bind.annotation.GetMapping;
+import org.springframework.web.bind.annotation.RequestMapping;
+import org.springframework.web.bind.annotation.RestController;
+
+import javax.annotation.Resource;
+
+/**
+ * <p>
+ * 缓存监控
+ * </p>
+ */
+@RestController
+@RequestMapping("/cache")
+public class CacheController {
+
+    @Resource
+    private NearCache nearCache;
+
+    @Resource
+    private BloomFilterRegistry bloomFilterRegistry;
+
+    @Resource
+    private CacheRebuildExecutor cacheRebuildExecutor;
+
+    @Resource
+    private CacheWarmer cacheWarmer;
+
+    @Resource
+    private HotKeyDetector hotKeyDetector;
+
+    /**
+     * 查询本地缓存按key前缀的命中统计
+     * @return 统计数据
+     */
+    @GetMapping("/stats")
+    public Result queryStats() {
+        return Result.ok(nearCache.stats());
+    }
+
+    /**
+     * 查询布隆过滤器状态及拦截次数
+     * @return 统计数据
+     */
+    @GetMapping("/bloom")
+    public Result queryBloomStats() {
+        return Result.ok(bloomFilterRegistry.stats());
+    }
+
+    /**
+     * 查询缓存重建线程池的队列深度及各前缀的重建耗时
+     * @return 统计数据
+     */
+    @GetMapping("/rebuild")
+    public Result queryRebuildStats() {
+        return Result.ok(cacheRebuildExecutor.stats());
+    }
+
+    /**
+     * 查询启动预热各阶段的数量及耗时
+     * @return 统计数据
+     */
+    @GetMapping("/warmup")
+    public Result queryWarmupStats() {
+        return Result.ok(cacheWarmer.stats());
+    }
+
+    /**
+     * 查询本节点当前的热点key及晋升降级次数
+     * @return 统计数据
+     */
+    @GetMapping("/hot-keys")
+    public Result queryHotKeys() {
+        return Result.ok(hotKeyDetector.stats());
+    }
+}
@@ -19,6 +19,7 @@ import org.springframework.web.bind.annotation.*;
 
 import javax.annotation.Resource;
 import javax.servlet.http.HttpSession;
+import java.util.Collections;
 import java.util.List;
 
 /**
@@ -91,10 +92,10 @@ public class UserController {
 
     @GetMapping("/{id}")
     public Result queryUserById(@PathVariable("id") Long id){
-        User user = userService.getById(id);
-        if (user == null)
+        // 与博客作者共用用户缓存
+        List<UserDTO> users = userService.getUsersByIds(Collections.singletonList(id));
+        if (users.isEmpty())
             return Result.ok();
-        UserDTO userDTO = BeanUtil.copyProperties(user, UserDTO.class);
-        return Result.ok(userDTO);
+        return Result.ok(users.get(0));
     }
 }
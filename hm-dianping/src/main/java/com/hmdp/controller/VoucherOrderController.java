@@ -3,6 +3,8 @@ package com.hmdp.controller;
 
 import com.hmdp.dto.Result;
 import com.hmdp.service.IVoucherOrderService;
+import com.hmdp.utils.TwoTierLock;
+import org.springframework.web.bind.annotation.GetMapping;
 import org.springframework.web.bind.annotation.PathVariable;
 import org.springframework.web.bind.annotation.PostMapping;
 import org.springframework.web.bind.annotation.RequestMapping;
@@ -25,9 +27,20 @@ public class VoucherOrderController {
     @Resource
     private IVoucherOrderService voucherOrderService;
 
+    @Resource
+    private TwoTierLock twoTierLock;
 
     @PostMapping("seckill/{id}")
     public Result seckillVoucher(@PathVariable("id") Long voucherId) {
         return  voucherOrderService.seckillVoucher(voucherId);
     }
+
+    /**
+     * 查询订单锁本地/分布式获取次数及等待耗时
+     * @return 统计数据
+     */
+    @GetMapping("lock-stats")
+    public Result queryLockStats() {
+        return Result.ok(twoTierLock.stats());
+    }
 }
@@ -0,0 +1,11 @@
+package com.hmdp.dto;
+
+import lombok.AllArgsConstructor;
+import lombok.Data;
+
+@Data
+@AllArgsConstructor
+public class LikeResult {
+    private Boolean isLike;
+    private Integer liked;
+}
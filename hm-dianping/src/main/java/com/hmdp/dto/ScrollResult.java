@@ -9,4 +9,6 @@ public class ScrollResult {
     private List<?> list;
     private Long minTime;
     private Integer offset;
+    // 按分数滚动时的游标, 如博客热榜
+    private Double minScore;
 }
@@ -0,0 +1,50 @@
+package com.hmdp.service;
+
+import com.hmdp.dto.Result;
+import com.hmdp.entity.Blog;
+import com.baomidou.mybatisplus.extension.service.IService;
+
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+/**
+ * <p>
+ *  服务类
+ * </p>
+ *
+ * @author 虎哥
+ * @since 2021-12-22
+ */
+public interface IBlogService extends IService<Blog> {
+
+    Result queryHotBlog(Integer current);
+
+    /**
+     * 按分数游标滚动查询热榜, 用于深分页
+     * @param max 上一页返回的minScore, 第一页为空
+     * @param offset 上一页返回的offset, 第一页为0
+     */
+    Result queryHotBlogScroll(Double max, Integer offset);
+
+    Result queryBlogById(Long id);
+
+    Result likeBlog(Long id);
+
+    Result queryBlogLikes(Long id);
+
+    Result saveBlog(Blog blog);
+
+    Result queryBlogOfFollow(Long max, Integer offset);
+
+    /**
+     * 查询博客推送的队列深度、推送数量及耗时
+     */
+    Map<String, Object> queryFeedStats();
+
+    /**
+     * 批量查询用户点赞过的博客, 一次管道请求
+     * @return blogIds中已点赞的id
+     */
+    Set<Long> queryLikedBlogIds(Long userId, List<Long> blogIds);
+}
@@ -13,4 +13,7 @@ import com.baomidou.mybatisplus.extension.service.IService;
  */
 public interface ISeckillVoucherService extends IService<SeckillVoucher> {
 
+    SeckillVoucher queryWithLocalCache(Long voucherId);
+
+    void evictLocalCache(Long voucherId);
 }
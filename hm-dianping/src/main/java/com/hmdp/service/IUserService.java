@@ -3,9 +3,12 @@ package com.hmdp.service;
 import com.baomidou.mybatisplus.extension.service.IService;
 import com.hmdp.dto.LoginFormDTO;
 import com.hmdp.dto.Result;
+import com.hmdp.dto.UserDTO;
 import com.hmdp.entity.User;
 
 import javax.servlet.http.HttpSession;
+import java.util.Collection;
+import java.util.List;
 
 /**
  * <p>
@@ -32,4 +35,11 @@ public interface IUserService extends IService<User> {
      * @return
      */
     Result login(LoginFormDTO loginForm, HttpSession session);
+
+    /**
+     * 批量查询用户信息, 依次查询本次请求已查过的用户、redis和数据库, 每一层只查询一次
+     * @param ids 可以包含重复的id
+     * @return 按入参顺序排列的结果, 不存在的用户被跳过
+     */
+    List<UserDTO> getUsersByIds(Collection<Long> ids);
 }
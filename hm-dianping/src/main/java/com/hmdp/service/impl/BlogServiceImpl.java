@@ -0,0 +1,325 @@
+package com.hmdp.service.impl;
+
+import cn.hutool.core.bean.BeanUtil;
+import cn.hutool.core.util.BooleanUtil;
+import cn.hutool.core.util.StrUtil;
+import com.baomidou.mybatisplus.extension.plugins.pagination.Page;
+import com.hmdp.dto.LikeResult;
+import com.hmdp.dto.Result;
+import com.hmdp.dto.ScrollResult;
+import com.hmdp.dto.UserDTO;
+import com.hmdp.entity.Blog;
+import com.hmdp.entity.User;
+import com.hmdp.mapper.BlogMapper;
+import com.hmdp.service.IBlogService;
+import com.baomidou.mybatisplus.extension.service.impl.ServiceImpl;
+import com.hmdp.service.IUserService;
+import com.hmdp.utils.BlogHotRank;
+import com.hmdp.utils.BlogLikeCounter;
+import com.hmdp.utils.BloomFilterRegistry;
+import com.hmdp.utils.FeedFanout;
+import com.hmdp.utils.NearCache;
+import com.hmdp.utils.RedisConstants;
+import com.hmdp.utils.SystemConstants;
+import com.hmdp.utils.UserHolder;
+import io.netty.util.internal.StringUtil;
+import org.springframework.beans.BeanUtils;
+import org.springframework.data.redis.connection.StringRedisConnection;
+import org.springframework.data.redis.core.RedisCallback;
+import org.springframework.data.redis.core.StringRedisTemplate;
+import org.springframework.data.redis.core.ZSetOperations;
+import org.springframework.stereotype.Service;
+
+import javax.annotation.Resource;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.Set;
+import java.util.function.Function;
+import java.util.stream.Collectors;
+
+/**
+ * <p>
+ *  服务实现类
+ * </p>
+ *
+ * @author 虎哥
+ * @since 2021-12-22
+ */
+@Service
+public class BlogServiceImpl extends ServiceImpl<BlogMapper, Blog> implements IBlogService {
+
+    @Resource
+    private IUserService userService;
+
+    @Resource
+    private StringRedisTemplate stringRedisTemplate;
+
+    @Resource
+    private BloomFilterRegistry bloomFilterRegistry;
+
+    @Resource
+    private NearCache nearCache;
+
+    @Resource
+    private BlogLikeCounter blogLikeCounter;
+
+    @Resource
+    private BlogHotRank blogHotRank;
+
+    @Resource
+    private FeedFanout feedFanout;
+
+
+    @Override
+    public Result queryHotBlog(Integer current) {
+        // 1. 从热榜查询当前页的博客id
+        long start = (long) (Math.max(current, 1) - 1) * SystemConstants.MAX_PAGE_SIZE;
+        List<Long> ids = blogHotRank.range(start, SystemConstants.MAX_PAGE_SIZE);
+        List<Blog> records;
+        if (ids != null) {
+            // 2. 批量查询博客
+            records = queryBlogsByIds(ids);
+        } else {
+            // 热榜尚未构建, 查询数据库
+            records = query()
+                    .orderByDesc("liked")
+                    .page(new Page<>(current, SystemConstants.MAX_PAGE_SIZE))
+                    .getRecords();
+        }
+        // 批量查询用户
+        this.queryBlogUser(records);
+        queryBlogLikedCount(records);
+        isBlogLiked(records);
+        return Result.ok(records);
+    }
+
+    @Override
+    public Result queryHotBlogScroll(Double max, Integer offset) {
+        // 1. 按分数游标查询热榜
+        Set<ZSetOperations.TypedTuple<String>> typedTuples = blogHotRank.scroll(
+                max == null ? Double.POSITIVE_INFINITY : max, offset, SystemConstants.MAX_PAGE_SIZE);
+        if (typedTuples == null || typedTuples.isEmpty()) return Result.ok();
+        // 2. 解析数据, 记录最小分数及其个数作为下一页的游标
+        List<Long> ids = new ArrayList<>(typedTuples.size());
+        // 以第一条的分数为初始值, 分数可能为0
+        double minScore = Double.NaN;
+        int os = 0;
+        for (ZSetOperations.TypedTuple<String> tuple : typedTuples) {
+            ids.add(Long.valueOf(tuple.getValue()));
+            double score = tuple.getScore();
+            if (score == minScore) {
+                os++;
+            } else {
+                minScore = score;
+                os = 1;
+            }
+        }
+        // 整页分数都与上一页的最小分数相同, 需要累加上一页的偏移量, 否则会重复返回这一页
+        if (max != null && minScore == max) {
+            os += offset;
+        }
+        // 3. 查询blog
+        List<Blog> blogs = queryBlogsByIds(ids);
+        queryBlogUser(blogs);
+        queryBlogLikedCount(blogs);
+        isBlogLiked(blogs);
+        // 4. 封装返回
+        ScrollResult result = new ScrollResult();
+        result.setList(blogs);
+        result.setOffset(os);
+        result.setMinScore(minScore);
+        return Result.ok(result);
+    }
+
+    // 一次查询数据库, 按ids顺序返回, 已删除的博客被跳过
+    private List<Blog> queryBlogsByIds(List<Long> ids) {
+        if (ids.isEmpty()) return Collections.emptyList();
+        Map<Long, Blog> blogs = listByIds(ids).stream()
+                .collect(Collectors.toMap(Blog::getId, Function.identity()));
+        return ids.stream().map(blogs::get).filter(Objects::nonNull).collect(Collectors.toList());
+    }
+
+    @Override
+    public Result queryBlogById(Long id) {
+        // 布隆过滤器拦截不存在的id
+        if (!bloomFilterRegistry.mightContain(RedisConstants.CACHE_BLOG_KEY, id))
+            return Result.fail("博客不存在");
+        Blog blog = getById(id);
+        if (blog == null)
+            return Result.fail("博客不存在");
+
+        queryBlogUser(Collections.singletonList(blog));
+        queryBlogLikedCount(Collections.singletonList(blog));
+        isBlogLiked(Collections.singletonList(blog));
+        return Result.ok(blog);
+    }
+
+    // 点赞数以redis为准, 数据库中的liked只用于排序, 最多延迟BLOG_LIKE_FLUSH_INTERVAL毫秒
+    private void queryBlogLikedCount(List<Blog> blogs) {
+        if (blogs.isEmpty()) return;
+        List<Long> ids = blogs.stream().map(Blog::getId).collect(Collectors.toList());
+        Map<Long, Integer> counts = blogLikeCounter.getCounts(ids);
+        for (Blog blog : blogs) {
+            Integer count = counts.get(blog.getId());
+            if (count != null) {
+                blog.setLiked(count);
+            }
+        }
+    }
+
+    // 批量判断当前用户是否点赞
+    private void isBlogLiked(List<Blog> blogs) {
+        UserDTO user = UserHolder.getUser();
+        if (user == null || blogs.isEmpty()) return;
+        // 1. 一次管道查询整页博客
+        List<Long> ids = blogs.stream().map(Blog::getId).collect(Collectors.toList());
+        Set<Long> liked = queryLikedBlogIds(user.getId(), ids);
+        // 2. 设置点赞状态
+        for (Blog blog : blogs) {
+            blog.setIsLike(liked.contains(blog.getId()));
+        }
+    }
+
+    @Override
+    public Set<Long> queryLikedBlogIds(Long userId, List<Long> blogIds) {
+        if (userId == null || blogIds == null || blogIds.isEmpty()) {
+            return Collections.emptySet();
+        }
+        // 每个博客一条zscore, 通过管道一次发送
+        String member = userId.toString();
+        List<Object> scores = stringRedisTemplate.executePipelined((RedisCallback<Object>) connection -> {
+            StringRedisConnection conn = (StringRedisConnection) connection;
+            for (Long blogId : blogIds) {
+                conn.zScore(RedisConstants.BLOG_LIKED_KEY + blogId, member);
+            }
+            return null;
+        });
+        Set<Long> liked = new HashSet<>();
+        for (int i = 0; i < blogIds.size(); i++) {
+            if (scores.get(i) != null) {
+                liked.add(blogIds.get(i));
+            }
+        }
+        return liked;
+    }
+
+    @Override
+    public Result likeBlog(Long id) {
+        // 1. 布隆过滤器拦截不存在的博客
+        if (!bloomFilterRegistry.mightContain(RedisConstants.CACHE_BLOG_KEY, id))
+            return Result.fail("博客不存在");
+        // 2. 获取登录用户
+        Long userId = UserHolder.getUser().getId();
+        // 3. 点赞或取消点赞, 只写redis, 点赞数由BlogLikeCounter定时写入数据库
+        LikeResult result = blogLikeCounter.toggle(id, userId);
+        return Result.ok(result);
+    }
+
+    @Override
+    public Result queryBlogLikes(Long id) {
+        String key = RedisConstants.BLOG_LIKED_KEY + id;
+        // 热点博客的点赞列表使用本地副本, 最多延迟HOT_KEY_LOCAL_TTL毫秒
+        List<Long> ids = queryTop5Likes(key);
+        if (ids.isEmpty()){
+            return Result.ok(Collections.emptyList());
+        }
+        // 批量查询用户, 结果与ids顺序一致
+        List<UserDTO> userDTOS = userService.getUsersByIds(ids);
+
+        return Result.ok(userDTOS);
+    }
+
+    @SuppressWarnings("unchecked")
+    private List<Long> queryTop5Likes(String key) {
+        Object local = nearCache.get(RedisConstants.BLOG_LIKED_KEY, key);
+        if (local instanceof List) {
+            return (List<Long>) local;
+        }
+        Set<String> top5 = stringRedisTemplate.opsForZSet().range(key, 0, 4);
+        List<Long> ids = top5 == null ? Collections.emptyList()
+                : top5.stream().map(Long::valueOf).collect(Collectors.toList());
+        nearCache.putIfHot(key, ids);
+        return ids;
+    }
+
+    @Override
+    public Result saveBlog(Blog blog) {
+        // 获取登录用户
+        UserDTO user = UserHolder.getUser();
+        blog.setUserId(user.getId());
+        // 保存探店笔记
+        boolean isSuccess = save(blog);
+        if (!isSuccess) return Result.fail("新增失败");
+        bloomFilterRegistry.add(RedisConstants.CACHE_BLOG_KEY, blog.getId());
+        blogHotRank.add(blog);
+        // 异步推送笔记id给所有粉丝
+        feedFanout.submit(user.getId(), blog.getId(), System.currentTimeMillis());
+
+        // 返回id
+        return Result.ok(blog.getId());
+
+    }
+
+    @Override
+    public Map<String, Object> queryFeedStats() {
+        return feedFanout.stats();
+    }
+
+    @Override
+    public Result queryBlogOfFollow(Long max, Integer offset) {
+        // 1. 获取当前用户
+        Long userId = UserHolder.getUser().getId();
+        // 2. 查询收件箱
+        String key = RedisConstants.FEED_KEY + userId;
+        Set<ZSetOperations.TypedTuple<String>> typedTuples = stringRedisTemplate.opsForZSet().reverseRangeByScoreWithScores(key, 0, max, offset, 3);
+        // 3. 解析数据
+        if (typedTuples == null || typedTuples.isEmpty()) return Result.ok();
+        List<Long> ids = new ArrayList<>(typedTuples.size());
+        long minTime = 0;
+        int os = 1;
+
+        for (ZSetOperations.TypedTuple<String> tuple : typedTuples) {
+            ids.add(Long.valueOf(tuple.getValue()));
+
+            long time = tuple.getScore().longValue();
+            if (time == minTime){
+                os++;
+            }
+            else {
+                minTime = time;
+                os = 1;
+            }
+        }
+        // 4. 查询blog
+        String idStr = StrUtil.join(",", ids);
+        List<Blog> blogs = query().in("id", ids).last("ORDER BY FIELD(id, " + idStr + ")").list();
+        queryBlogUser(blogs);
+        queryBlogLikedCount(blogs);
+        isBlogLiked(blogs);
+        // 5. 封装返回
+        ScrollResult result = new ScrollResult();
+        result.setList(blogs);
+        result.setOffset(os);
+        result.setMinTime(minTime);
+
+        return Result.ok(result);
+    }
+
+    // 批量查询博客作者
+    private void queryBlogUser(List<Blog> blogs) {
+        if (blogs.isEmpty()) return;
+        List<Long> userIds = blogs.stream().map(Blog::getUserId).collect(Collectors.toList());
+        Map<Long, UserDTO> users = userService.getUsersByIds(userIds).stream()
+                .collect(Collectors.toMap(UserDTO::getId, Function.identity(), (a, b) -> a));
+        for (Blog blog : blogs) {
+            UserDTO user = users.get(blog.getUserId());
+            if (user == null) continue;
+            blog.setName(user.getNickName());
+            blog.setIcon(user.getIcon());
+        }
+    }
+}
@@ -75,10 +75,8 @@ public class FollowServiceImpl extends ServiceImpl<FollowMapper, Follow> impleme
         }
         List<Long> ids = intersect.stream().map(Long::valueOf).collect(Collectors.toList());
 
-        List<UserDTO> users = userService.listByIds(ids)
-                .stream()
-                .map(user -> BeanUtil.copyProperties(user, UserDTO.class))
-                .collect(Collectors.toList());
+        // 批量查询用户, 未命中缓存的用户合并为一次数据库查询
+        List<UserDTO> users = userService.getUsersByIds(ids);
 
         return Result.ok(users);
     }
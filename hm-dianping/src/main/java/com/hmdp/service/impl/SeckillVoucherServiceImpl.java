@@ -0,0 +1,51 @@
+package com.hmdp.service.impl;
+
+import com.hmdp.entity.SeckillVoucher;
+import com.hmdp.mapper.SeckillVoucherMapper;
+import com.hmdp.service.ISeckillVoucherService;
+import com.baomidou.mybatisplus.extension.service.impl.ServiceImpl;
+import cn.hutool.cache.Cache;
+import cn.hutool.cache.CacheUtil;
+import com.hmdp.utils.SingleFlight;
+import org.springframework.stereotype.Service;
+
+import java.util.Optional;
+
+import static com.hmdp.utils.SystemConstants.SECKILL_META_LOCAL_TTL;
+
+/**
+ * <p>
+ * 秒杀优惠券表，与优惠券是一对一关系 服务实现类
+ * </p>
+ *
+ * @author 虎哥
+ * @since 2022-01-04
+ */
+@Service
+public class SeckillVoucherServiceImpl extends ServiceImpl<SeckillVoucherMapper, SeckillVoucher> implements ISeckillVoucherService {
+
+    // 秒杀券信息的本地缓存, 用于在访问redis之前判断秒杀时间, 不存在的券同样缓存
+    private final Cache<Long, Optional<SeckillVoucher>> localCache = CacheUtil.newTimedCache(SECKILL_META_LOCAL_TTL);
+
+    private final SingleFlight singleFlight = new SingleFlight();
+
+    /**
+     * 查询秒杀券, 优先使用本地缓存, 未命中时同一张券只有一个线程查询数据库
+     * 库存以redis为准, 这里的stock可能已过期, 只能使用开始和结束时间
+     */
+    @Override
+    public SeckillVoucher queryWithLocalCache(Long voucherId) {
+        Optional<SeckillVoucher> cached = localCache.get(voucherId, false);
+        if (cached != null) {
+            return cached.orElse(null);
+        }
+        SeckillVoucher voucher = singleFlight.execute(voucherId.toString(), () -> getById(voucherId));
+        localCache.put(voucherId, Optional.ofNullable(voucher));
+        return voucher;
+    }
+
+    @Override
+    public void evictLocalCache(Long voucherId) {
+        localCache.remove(voucherId);
+    }
+}
@@ -11,7 +11,9 @@ import com.hmdp.dto.UserDTO;
 import com.hmdp.entity.User;
 import com.hmdp.mapper.UserMapper;
 import com.hmdp.service.IUserService;
+import com.hmdp.utils.CacheClient;
 import com.hmdp.utils.RegexUtils;
+import com.hmdp.utils.RequestUserCache;
 import lombok.extern.slf4j.Slf4j;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.beans.factory.annotation.Qualifier;
@@ -22,9 +24,16 @@ import com.hmdp.utils.SystemConstants;
 
 import javax.annotation.Resource;
 import javax.servlet.http.HttpSession;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
 import java.util.HashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
 import java.util.Map;
+import java.util.Set;
 import java.util.concurrent.TimeUnit;
+import java.util.stream.Collectors;
 
 import static com.hmdp.utils.RedisConstants.*;
 import static com.hmdp.utils.SystemConstants.USER_NICK_NAME_PREFIX;
@@ -44,6 +53,9 @@ public class UserServiceImpl extends ServiceImpl<UserMapper, User> implements IU
     @Resource
     private StringRedisTemplate stringRedisTemplate;
 
+    @Resource
+    private CacheClient cacheClient;
+
     /**
      * 发送验证码
      * @param phone
@@ -118,12 +130,66 @@ public class UserServiceImpl extends ServiceImpl<UserMapper, User> implements IU
         return Result.ok(token);
     }
 
+    @Override
+    public List<UserDTO> getUsersByIds(Collection<Long> ids) {
+        if (ids == null || ids.isEmpty()) {
+            return Collections.emptyList();
+        }
+        // 1. 本次请求已查询过的用户
+        Map<Long, UserDTO> memo = RequestUserCache.get();
+        Map<Long, UserDTO> found = new HashMap<>(ids.size() * 2);
+        // 去重并保持入参顺序
+        Set<Long> missIds = new LinkedHashSet<>(ids.size() * 2);
+        for (Long id : ids) {
+            if (memo != null && memo.containsKey(id)) {
+                found.put(id, memo.get(id));
+            } else {
+                missIds.add(id);
+            }
+        }
+
+        // 2. 其余的用户通过缓存批量查询, 未命中的用户合并为一次数据库查询
+        if (!missIds.isEmpty()) {
+            List<UserDTO> users = cacheClient.queryManyWithPassThrough(
+                    CACHE_USER_KEY,
+                    missIds,
+                    UserDTO.class,
+                    batch -> listByIds(batch).stream()
+                            .map(user -> BeanUtil.copyProperties(user, UserDTO.class))
+                            .collect(Collectors.toList()),
+                    UserDTO::getId,
+                    CACHE_USER_TTL,
+                    TimeUnit.MINUTES);
+            for (UserDTO user : users) {
+                found.put(user.getId(), user);
+            }
+            // 不存在的用户也记录下来, 本次请求内不再查询
+            if (memo != null) {
+                for (Long id : missIds) {
+                    memo.put(id, found.get(id));
+                }
+            }
+        }
+
+        // 3. 按入参顺序返回
+        List<UserDTO> result = new ArrayList<>(ids.size());
+        for (Long id : ids) {
+            UserDTO user = found.get(id);
+            if (user != null) {
+                result.add(user);
+            }
+        }
+        return result;
+    }
+
     // 创建用户
     private User createUserWithPhone(String phone) {
         User user = new User();
         user.setPhone(phone);
         user.setNickName(USER_NICK_NAME_PREFIX + RandomUtil.randomString(10));
         save(user);
+        // 清除之前查询该id时缓存的空值
+        stringRedisTemplate.delete(CACHE_USER_KEY + user.getId());
         return user;
     }
 }
@@ -0,0 +1,586 @@
+package com.hmdp.service.impl;
+
+import cn.hutool.core.bean.BeanUtil;
+import cn.hutool.core.util.StrUtil;
+import cn.hutool.json.JSONUtil;
+import com.hmdp.dto.Result;
+import com.hmdp.entity.SeckillVoucher;
+import com.hmdp.entity.VoucherOrder;
+import com.hmdp.mapper.VoucherOrderMapper;
+import com.hmdp.service.ISeckillVoucherService;
+import com.hmdp.service.IVoucherOrderService;
+import com.baomidou.mybatisplus.extension.service.impl.ServiceImpl;
+import com.hmdp.utils.RedisWorker;
+import com.hmdp.utils.SeckillBuckets;
+import com.hmdp.utils.SoldOutRegistry;
+import com.hmdp.utils.TwoTierLock;
+import com.hmdp.utils.UserHolder;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.annotation.Lazy;
+import org.springframework.core.io.ClassPathResource;
+import org.springframework.dao.DuplicateKeyException;
+import org.springframework.data.redis.connection.stream.Consumer;
+import org.springframework.data.redis.connection.stream.MapRecord;
+import org.springframework.data.redis.connection.stream.ReadOffset;
+import org.springframework.data.redis.connection.stream.RecordId;
+import org.springframework.data.redis.connection.stream.StreamOffset;
+import org.springframework.data.redis.connection.stream.StreamReadOptions;
+import org.springframework.data.redis.core.RedisCallback;
+import org.springframework.data.redis.core.StringRedisTemplate;
+import org.springframework.data.redis.core.script.DefaultRedisScript;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Transactional;
+
+import javax.annotation.PostConstruct;
+import javax.annotation.PreDestroy;
+import javax.annotation.Resource;
+import java.lang.management.ManagementFactory;
+import java.net.InetAddress;
+import java.net.UnknownHostException;
+import java.nio.charset.StandardCharsets;
+import java.time.Duration;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.*;
+import java.util.stream.Collectors;
+
+import static com.hmdp.utils.RedisConstants.*;
+import static com.hmdp.utils.SystemConstants.*;
+
+/**
+ * <p>
+ *  服务实现类
+ * </p>
+ *
+ * @author 虎哥
+ * @since 2021-12-22
+ */
+@Service
+@Slf4j
+public class VoucherOrderServiceImpl extends ServiceImpl<VoucherOrderMapper, VoucherOrder> implements IVoucherOrderService {
+
+    @Resource
+    private ISeckillVoucherService seckillVoucherService;
+
+    @Resource
+    private RedisWorker redisWorker;
+
+    @Resource
+    private StringRedisTemplate stringRedisTemplate;
+
+    @Resource
+    private TwoTierLock twoTierLock;
+
+    @Resource
+    private SoldOutRegistry soldOutRegistry;
+
+    // 代理对象, 消费线程中无法通过AopContext获取
+    @Lazy
+    @Resource
+    private IVoucherOrderService proxy;
+
+    @SuppressWarnings("rawtypes")
+    private static final DefaultRedisScript<List> SECKILL_SCRIPT;
+    static {
+        SECKILL_SCRIPT = new DefaultRedisScript<>();
+        SECKILL_SCRIPT.setLocation(new ClassPathResource("seckill.lua"));
+        SECKILL_SCRIPT.setResultType(List.class);
+    }
+
+    private static final DefaultRedisScript<Long> TAKE_SCRIPT;
+    static {
+        TAKE_SCRIPT = new DefaultRedisScript<>();
+        TAKE_SCRIPT.setLocation(new ClassPathResource("seckill-take.lua"));
+        TAKE_SCRIPT.setResultType(Long.class);
+    }
+
+    @SuppressWarnings("rawtypes")
+    private static final DefaultRedisScript<List> RECLAIM_SCRIPT;
+    static {
+        RECLAIM_SCRIPT = new DefaultRedisScript<>();
+        RECLAIM_SCRIPT.setLocation(new ClassPathResource("seckill-reclaim.lua"));
+        RECLAIM_SCRIPT.setResultType(List.class);
+    }
+
+    // 每个桶的订单队列一个消费线程
+    private static final ExecutorService SECKILL_ORDER_EXECUTOR = Executors.newFixedThreadPool(SECKILL_STOCK_BUCKETS);
+
+    // 消费者名称, 未配置时使用主机名; 重启后名称不变, 启动时先处理上一次运行未确认的消息
+    // 名称变化(如容器重建后主机名改变)时, 旧名称下未确认的消息由reclaimPending在空闲SECKILL_PENDING_IDLE毫秒后认领
+    // 同一主机运行多个实例时需要分别配置不同的名称, 否则会重复处理对方正在处理的消息
+    @Value("${hmdp.seckill.consumer-name:}")
+    private String consumerName;
+
+    // 每个订单队列认领的游标
+    private final Map<String, String> reclaimCursors = new ConcurrentHashMap<>();
+
+    private volatile boolean running = true;
+
+    @PostConstruct
+    private void init(){
+        if (StrUtil.isBlank(consumerName)) {
+            consumerName = hostName();
+        }
+        for (int bucket = 0; bucket < SECKILL_STOCK_BUCKETS; bucket++) {
+            String streamKey = SeckillBuckets.streamKey(bucket);
+            createGroup(streamKey);
+            SECKILL_ORDER_EXECUTOR.submit(new VoucherOrderHandler(streamKey));
+        }
+    }
+
+    private static String hostName(){
+        try {
+            return InetAddress.getLocalHost().getHostName();
+        } catch (UnknownHostException e) {
+            // 无法获取主机名时使用进程名, 重启后会变化
+            String name = ManagementFactory.getRuntimeMXBean().getName();
+            log.warn("获取主机名失败, 订单消费者名称使用{}", name, e);
+            return name;
+        }
+    }
+
+    @PreDestroy
+    private void destroy(){
+        running = false;
+        SECKILL_ORDER_EXECUTOR.shutdown();
+    }
+
+    // 创建消费者组, 队列不存在时一并创建 xgroup create stream.orders:{0} g1 0 mkstream
+    private void createGroup(String streamKey){
+        try {
+            stringRedisTemplate.execute((RedisCallback<String>) connection -> connection.streamCommands().xGroupCreate(
+                    streamKey.getBytes(StandardCharsets.UTF_8), SECKILL_ORDER_GROUP, ReadOffset.from("0"), true));
+        } catch (Exception e) {
+            // 消费者组已存在
+            log.debug("消费者组已存在, group:{}", SECKILL_ORDER_GROUP);
+        }
+    }
+
+    private class VoucherOrderHandler implements Runnable {
+
+        private final String streamKey;
+
+        private VoucherOrderHandler(String streamKey) {
+            this.streamKey = streamKey;
+        }
+
+        @Override
+        public void run() {
+            // 1. 先处理本消费者上次未确认的消息
+            readPending();
+            while (running) {
+                try {
+                    // 2. 获取一批订单信息
+                    List<MapRecord<String, Object, Object>> records = readBatch();
+                    if (records.isEmpty()) {
+                        continue;
+                    }
+                    // 3. 批量创建订单并确认
+                    handleBatch(records);
+                } catch (Exception e) {
+                    log.error("订单处理异常", e);
+                }
+            }
+        }
+
+        /**
+         * 攒批读取: 第一次阻塞等待消息, 收到后继续读取, 直到凑满SECKILL_BATCH_SIZE条或等待超过SECKILL_BATCH_WAIT毫秒
+         * xreadgroup group g1 c1 count 100 block 2000 streams stream.orders:{0} >
+         */
+        // read的StreamOffset参数为泛型可变参数
+        @SuppressWarnings("unchecked")
+        private List<MapRecord<String, Object, Object>> readBatch() {
+            List<MapRecord<String, Object, Object>> batch = new ArrayList<>();
+            long deadline = 0;
+            while (running && batch.size() < SECKILL_BATCH_SIZE) {
+                long block = batch.isEmpty() ? SECKILL_READ_BLOCK : deadline - System.currentTimeMillis();
+                if (block <= 0) {
+                    break;
+                }
+                List<MapRecord<String, Object, Object>> records = stringRedisTemplate.opsForStream().read(
+                        Consumer.from(SECKILL_ORDER_GROUP, consumerName),
+                        StreamReadOptions.empty().count(SECKILL_BATCH_SIZE - batch.size()).block(Duration.ofMillis(block)),
+                        StreamOffset.create(streamKey, ReadOffset.lastConsumed()));
+                if (records == null || records.isEmpty()) {
+                    break;
+                }
+                if (batch.isEmpty()) {
+                    deadline = System.currentTimeMillis() + SECKILL_BATCH_WAIT;
+                }
+                batch.addAll(records);
+            }
+            return batch;
+        }
+
+        /**
+         * 一次事务创建整批订单, 失败时退回逐条处理, 逐条处理仍失败的消息留在pending-list中, 之后被重新认领
+         */
+        private void handleBatch(List<MapRecord<String, Object, Object>> records) {
+            List<VoucherOrder> voucherOrders = new ArrayList<>(records.size());
+            for (MapRecord<String, Object, Object> record : records) {
+                voucherOrders.add(BeanUtil.fillBeanWithMap(record.getValue(), new VoucherOrder(), true));
+            }
+            try {
+                proxy.createVoucherOrders(voucherOrders);
+            } catch (Exception e) {
+                log.warn("批量创建订单失败, 逐条处理, 数量:{}", records.size(), e);
+                for (int i = 0; i < records.size(); i++) {
+                    handleAndAck(streamKey, records.get(i).getId().getValue(), voucherOrders.get(i), false);
+                }
+                return;
+            }
+            String[] ids = records.stream().map(record -> record.getId().getValue()).toArray(String[]::new);
+            ack(streamKey, ids);
+        }
+
+        // 读取已投递给本消费者但未确认的消息 xreadgroup group g1 c1 count 10 streams stream.orders:{0} 0
+        // read的StreamOffset参数为泛型可变参数
+        @SuppressWarnings("unchecked")
+        private void readPending() {
+            while (running) {
+                try {
+                    List<MapRecord<String, Object, Object>> records = stringRedisTemplate.opsForStream().read(
+                            Consumer.from(SECKILL_ORDER_GROUP, consumerName),
+                            StreamReadOptions.empty().count(SECKILL_READ_COUNT),
+                            StreamOffset.create(streamKey, ReadOffset.from("0")));
+                    if (records == null || records.isEmpty()) {
+                        return;
+                    }
+                    for (MapRecord<String, Object, Object> record : records) {
+                        VoucherOrder voucherOrder = BeanUtil.fillBeanWithMap(record.getValue(), new VoucherOrder(), true);
+                        if (!handleAndAck(streamKey, record.getId().getValue(), voucherOrder, false)) {
+                            // 处理失败交给认领任务按投递次数重试
+                            return;
+                        }
+                    }
+                } catch (Exception e) {
+                    log.error("处理pending-list订单异常", e);
+                    return;
+                }
+            }
+        }
+    }
+
+    /**
+     * 认领空闲超过SECKILL_PENDING_IDLE毫秒的消息并重新处理, 投递次数超过上限的消息转入死信队列
+     */
+    @Scheduled(fixedDelay = SECKILL_RECLAIM_INTERVAL)
+    public void reclaimPending() {
+        for (int bucket = 0; bucket < SECKILL_STOCK_BUCKETS; bucket++) {
+            reclaimPending(SeckillBuckets.streamKey(bucket));
+        }
+    }
+
+    private void reclaimPending(String streamKey) {
+        try {
+            List<?> reply = stringRedisTemplate.execute(
+                    RECLAIM_SCRIPT,
+                    Collections.singletonList(streamKey),
+                    SECKILL_ORDER_GROUP,
+                    consumerName,
+                    String.valueOf(SECKILL_PENDING_IDLE),
+                    reclaimCursors.getOrDefault(streamKey, "0-0"),
+                    String.valueOf(SECKILL_READ_COUNT));
+            if (reply == null || reply.isEmpty()) {
+                return;
+            }
+            reclaimCursors.put(streamKey, reply.get(0).toString());
+            for (int i = 1; i + 2 < reply.size(); i += 3) {
+                String id = reply.get(i).toString();
+                long deliveries = Long.parseLong(reply.get(i + 1).toString());
+                String body = reply.get(i + 2).toString();
+                if (StrUtil.isBlank(body)) {
+                    // 消息已被删除
+                    ack(streamKey, id);
+                    continue;
+                }
+                if (deliveries > SECKILL_MAX_DELIVERIES) {
+                    deadLetter(streamKey, id, body, deliveries);
+                    continue;
+                }
+                // 从其他消费者认领的消息, 原消费者可能仍在处理
+                handleAndAck(streamKey, id, JSONUtil.toBean(body, VoucherOrder.class), true);
+            }
+        } catch (Exception e) {
+            log.error("认领pending-list订单异常, stream:{}", streamKey, e);
+        }
+    }
+
+    // 创建订单, 成功后确认消息
+    private boolean handleAndAck(String streamKey, String id, VoucherOrder voucherOrder, boolean redelivered) {
+        try {
+            handleVoucherOrder(voucherOrder, redelivered);
+        } catch (Exception e) {
+            log.error("订单处理异常, id:{}", id, e);
+            return false;
+        }
+        ack(streamKey, id);
+        return true;
+    }
+
+    // 确认并删除消息, 队列中只保留未确认的订单, 不会随订单数无限增长
+    // 不使用xadd的MAXLEN, 消费积压超过上限时会裁掉尚未处理的订单 xack stream.orders:{0} g1 id...; xdel stream.orders:{0} id...
+    private void ack(String streamKey, String... ids) {
+        byte[] key = streamKey.getBytes(StandardCharsets.UTF_8);
+        RecordId[] recordIds = Arrays.stream(ids).map(RecordId::of).toArray(RecordId[]::new);
+        stringRedisTemplate.executePipelined((RedisCallback<Object>) connection -> {
+            connection.streamCommands().xAck(key, SECKILL_ORDER_GROUP, recordIds);
+            connection.streamCommands().xDel(key, recordIds);
+            return null;
+        });
+    }
+
+    // 多次处理失败的消息写入死信队列后确认, 等待人工处理
+    private void deadLetter(String streamKey, String id, String body, long deliveries) {
+        Map<String, String> fields = new HashMap<>();
+        fields.put("source", streamKey);
+        fields.put("sourceId", id);
+        fields.put("deliveries", String.valueOf(deliveries));
+        fields.put("body", body);
+        stringRedisTemplate.opsForStream().add(SECKILL_ORDER_DLQ, fields);
+        ack(streamKey, id);
+        log.error("订单多次处理失败, 已转入死信队列, id:{}, body:{}", id, body);
+    }
+
+    /**
+     * @param redelivered 消息被重新投递, 可能有其他节点在处理同一订单, 直接使用分布式锁
+     */
+    private void handleVoucherOrder(VoucherOrder voucherOrder, boolean redelivered) {
+        Long userId = voucherOrder.getUserId();
+        String lockKey = "lock:order:" + userId;
+
+        // 获取锁, 单节点时只使用本地分段锁
+        TwoTierLock.Lease lock = twoTierLock.tryLock(lockKey, redelivered);
+
+        // 判断获取锁是否成功
+        if (lock == null){
+            // 获取锁失败, 同一用户的其他订单正在处理, 抛出异常使消息稍后重试
+            throw new IllegalStateException("获取订单锁失败, userId:" + userId);
+        }
+
+        try {
+            proxy.createVoucherOrder(voucherOrder);
+        } catch (DuplicateKeyException e) {
+            // 订单已经创建过(消息重复投递或用户重复下单), 事务已回滚
+            log.warn("订单已存在, orderId:{}, userId:{}", voucherOrder.getId(), userId);
+            // 可能与其他节点竞争, 该用户之后的订单使用分布式锁
+            twoTierLock.escalate(lockKey);
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    @Override
+    public Result seckillVoucher(Long voucherId) {
+        // 根据本地缓存的秒杀券信息判断秒杀时间, 不在秒杀时间内直接返回, 不访问redis和数据库
+        SeckillVoucher voucher = seckillVoucherService.queryWithLocalCache(voucherId);
+        if (voucher == null) {
+            return Result.fail("秒杀券不存在");
+        }
+        LocalDateTime now = LocalDateTime.now();
+        if (voucher.getBeginTime().isAfter(now)) {
+            return Result.fail("秒杀尚未开始");
+        }
+        if (voucher.getEndTime().isBefore(now)) {
+            return Result.fail("秒杀已经结束");
+        }
+
+        // 已售罄直接返回, 不再访问redis
+        if (soldOutRegistry.isSoldOut(voucherId)) {
+            return Result.fail("库存不足");
+        }
+        Long userId = UserHolder.getUser().getId();
+        long orderId = redisWorker.nextId("order");
+        // 1. 在用户的主桶执行lua脚本, 有购买资格时脚本同时将订单写入消息队列
+        int home = SeckillBuckets.homeBucket(userId);
+        List<?> result = stringRedisTemplate.execute(
+                SECKILL_SCRIPT,
+                Arrays.asList(SeckillBuckets.stockKey(voucherId, home), SeckillBuckets.orderKey(voucherId, home),
+                        SeckillBuckets.streamKey(home), SeckillBuckets.timeKey(voucherId, home)),
+                voucherId.toString(),
+                userId.toString(),
+                String.valueOf(orderId)
+        );
+
+        // 2. 判断结果是否为0
+        int r = ((Long) result.get(0)).intValue();
+        // 补充库存的次数, 用于忽略补充库存之前的售罄判断
+        long epoch = (Long) result.get(1);
+
+        // 主桶库存不足, 从其他桶扣减
+        if (r == 3) {
+            r = takeFromOtherBuckets(voucherId, userId, orderId, home);
+        }
+
+        // 所有桶的库存都不足, 标记售罄
+        if (r == 1) {
+            soldOutRegistry.markSoldOut(voucherId, epoch);
+        }
+
+        // 不为0, 没有购买资格
+        if (r != 0){
+            // 本地时钟与redis不一致时, 以redis的判断为准
+            if (r == 4) {
+                return Result.fail("秒杀尚未开始");
+            }
+            if (r == 5) {
+                return Result.fail("秒杀已经结束");
+            }
+            return Result.fail(r == 1 ? "库存不足" : "不能重复下单");
+        }
+
+        // 3. 为0, 有购买资格, 订单已进入消息队列, 返回订单id
+        return Result.ok(orderId);
+    }
+
+    /**
+     * 从主桶之后的桶依次尝试扣减库存, 全部不足或扣减出错时释放主桶中的下单资格
+     * 没有在seckill.lua中原子地回退到其他桶: 各个桶的key位于不同的slot, redis集群中一个脚本不能同时访问,
+     * 因此主桶占住资格和其他桶扣减库存是分开的多次调用, 不是原子的
+     * 调用出错时在finally中释放资格; 进程在两次调用之间宕机、或释放资格时redis不可用, 用户会留在主桶的下单记录中
+     * 而没有订单, 直到秒杀结束都无法再次下单, 这是换取库存分散到多个slot的代价
+     * @return 0: 扣减成功, 1: 库存不足
+     */
+    private int takeFromOtherBuckets(Long voucherId, Long userId, long orderId, int home) {
+        boolean taken = false;
+        try {
+            for (int i = 1; i < SECKILL_STOCK_BUCKETS; i++) {
+                int bucket = (home + i) % SECKILL_STOCK_BUCKETS;
+                Long result = stringRedisTemplate.execute(
+                        TAKE_SCRIPT,
+                        Arrays.asList(SeckillBuckets.stockKey(voucherId, bucket), SeckillBuckets.streamKey(bucket)),
+                        voucherId.toString(),
+                        userId.toString(),
+                        String.valueOf(orderId)
+                );
+                if (result != null && result == 0) {
+                    taken = true;
+                    return 0;
+                }
+            }
+            return 1;
+        } finally {
+            if (!taken) {
+                releaseHomeBucket(voucherId, userId, home);
+            }
+        }
+    }
+
+    // 释放主桶中的下单资格, 失败时只记录日志, 不覆盖扣减库存时的异常
+    private void releaseHomeBucket(Long voucherId, Long userId, int home) {
+        try {
+            stringRedisTemplate.opsForSet().remove(SeckillBuckets.orderKey(voucherId, home), userId.toString());
+        } catch (Exception e) {
+            log.error("释放下单资格失败, 用户无法再次下单, voucherId:{}, userId:{}", voucherId, userId, e);
+        }
+    }
+
+//    @Override
+//    public Result seckillVoucher(Long voucherId) {
+//        // 1. 查询优惠卷
+//        SeckillVoucher voucher = seckillVoucherService.getById(voucherId);
+//
+//        // 2. 判断秒杀是否开始
+//        if (voucher.getBeginTime().isAfter(LocalDateTime.now())) {
+//            return Result.fail("秒杀尚未开始");
+//        }
+//
+//        // 3. 判断秒杀是否已经结束
+//        if (voucher.getEndTime().isBefore(LocalDateTime.now())) {
+//            return Result.fail("秒杀已经结束");
+//        }
+//
+//        // 4. 判断库存是否充足
+//        if (voucher.getStock() < 1)
+//            return Result.fail("库存不足");
+//
+//        Long userId = UserHolder.getUser().getId();
+//        // 创建锁对象
+//        RLock lock = redissonClient.getLock("lock:order:" + userId);
+//
+//        // 获取锁
+//        boolean isLock = lock.tryLock();
+//
+//        // 判断获取锁是否成功
+//        if (!isLock){
+//            // 获取锁失败
+//            return Result.fail("不允许重复下单");
+//        }
+//
+//        try {
+//            IVoucherOrderService proxy = (IVoucherOrderService) AopContext.currentProxy();
+//            return proxy.createVoucherOrder(voucherId);
+//        } catch (IllegalStateException e) {
+//            throw new RuntimeException(e);
+//        } finally {
+//            lock.unlock();
+//        }
+//
+//    }
+
+    /**
+     * 批量创建订单, 按优惠券分组, 每组一条多行INSERT IGNORE和一条扣库存语句
+     * 一人一单由唯一索引uk_user_voucher保证, 重复的订单被忽略, 只按实际插入的行数扣减库存
+     */
+    @Override
+    @Transactional
+    public void createVoucherOrders(List<VoucherOrder> voucherOrders) {
+        Map<Long, List<VoucherOrder>> groups = voucherOrders.stream()
+                .collect(Collectors.groupingBy(VoucherOrder::getVoucherId));
+        groups.forEach((voucherId, orders) -> {
+            // 1. 批量插入订单
+            int count = getBaseMapper().insertIgnoreBatch(orders);
+            if (count == 0) {
+                return;
+            }
+            // 2. 扣减库存
+            boolean success = seckillVoucherService.
+                    update().
+                    setSql("stock = stock - " + count).
+                    eq("voucher_id", voucherId).
+                    ge("stock", count).
+                    update();
+            // 扣减失败, 回滚整批
+            if (!success) {
+                throw new IllegalStateException("库存不足, voucherId:" + voucherId);
+            }
+        });
+    }
+
+    @Transactional
+    public void createVoucherOrder(VoucherOrder voucherOrder) {
+        // 一人一单
+        Long userId = voucherOrder.getUserId();
+
+        // 查询订单
+        Integer count = query().eq("user_id", userId).eq("voucher_id", voucherOrder.getVoucherId()).count();
+
+        // 判断是否存在
+        if(count > 0){
+            // 用户已经购买过
+            log.error("用户已经购买过");
+            return;
+        }
+
+        // 5. 扣减库存 添加乐观锁
+        boolean success = seckillVoucherService.
+                update().
+                setSql("stock = stock - 1").
+                eq("voucher_id", voucherOrder.getVoucherId()).
+                gt("stock", 0).
+                update();
+        // 扣减失败
+        if (!success){
+            log.error("库存不足");
+            return;
+        }
+        save(voucherOrder);
+    }
+}
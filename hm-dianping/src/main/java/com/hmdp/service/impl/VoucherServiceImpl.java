@@ -0,0 +1,112 @@
+package com.hmdp.service.impl;
+
+import com.baomidou.mybatisplus.extension.service.impl.ServiceImpl;
+import com.hmdp.dto.Result;
+import com.hmdp.entity.Voucher;
+import com.hmdp.mapper.VoucherMapper;
+import com.hmdp.entity.SeckillVoucher;
+import com.hmdp.service.ISeckillVoucherService;
+import com.hmdp.service.IVoucherService;
+import com.hmdp.utils.RedisConstants;
+import com.hmdp.utils.SeckillBuckets;
+import com.hmdp.utils.SoldOutRegistry;
+import org.springframework.data.redis.core.StringRedisTemplate;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Transactional;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+import javax.annotation.Resource;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * <p>
+ *  服务实现类
+ * </p>
+ *
+ * @author 虎哥
+ * @since 2021-12-22
+ */
+@Service
+public class VoucherServiceImpl extends ServiceImpl<VoucherMapper, Voucher> implements IVoucherService {
+
+    @Resource
+    private ISeckillVoucherService seckillVoucherService;
+
+    @Resource
+    private StringRedisTemplate stringRedisTemplate;
+
+    @Resource
+    private SoldOutRegistry soldOutRegistry;
+
+    @Override
+    public Result queryVoucherOfShop(Long shopId) {
+        // 查询优惠券信息
+        List<Voucher> vouchers = getBaseMapper().queryVoucherOfShop(shopId);
+        // 返回结果
+        return Result.ok(vouchers);
+    }
+
+    @Override
+    @Transactional
+    public void addSeckillVoucher(Voucher voucher) {
+        // 保存优惠券
+        save(voucher);
+        // 保存秒杀信息
+        SeckillVoucher seckillVoucher = new SeckillVoucher();
+        seckillVoucher.setVoucherId(voucher.getId());
+        seckillVoucher.setStock(voucher.getStock());
+        seckillVoucher.setBeginTime(voucher.getBeginTime());
+        seckillVoucher.setEndTime(voucher.getEndTime());
+        seckillVoucherService.save(seckillVoucher);
+
+        // 保存秒杀信息到redis中, 库存平均拆分到各个桶, 每个桶保存一份秒杀时间
+        int[] stocks = SeckillBuckets.split(voucher.getStock());
+        Map<String, String> timeFields = SeckillBuckets.timeFields(voucher.getBeginTime(), voucher.getEndTime());
+        for (int bucket = 0; bucket < stocks.length; bucket++) {
+            stringRedisTemplate.opsForHash().putAll(SeckillBuckets.timeKey(voucher.getId(), bucket), timeFields);
+            stringRedisTemplate.opsForValue().set(SeckillBuckets.stockKey(voucher.getId(), bucket), String.valueOf(stocks[bucket]));
+        }
+        // 清除本节点可能缓存的"不存在"
+        seckillVoucherService.evictLocalCache(voucher.getId());
+    }
+
+    @Override
+    @Transactional
+    public void addSeckillStock(Long voucherId, Integer amount) {
+        // 1. 增加数据库库存
+        boolean success = seckillVoucherService.update()
+                .setSql("stock = stock + " + amount)
+                .eq("voucher_id", voucherId)
+                .update();
+        if (!success) {
+            throw new IllegalArgumentException("秒杀券不存在");
+        }
+        // 2. 事务提交后再增加redis库存, 事务回滚时redis不会多出数据库中没有的库存
+        TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+            @Override
+            public void afterCommit() {
+                addRedisStock(voucherId, amount);
+            }
+        });
+    }
+
+    // 数据库已提交, 这里失败时redis库存少于数据库, 只会少卖不会超卖
+    private void addRedisStock(Long voucherId, Integer amount) {
+        // 1. 增加redis库存, 平均分配到各个桶
+        int[] stocks = SeckillBuckets.split(amount);
+        for (int bucket = 0; bucket < stocks.length; bucket++) {
+            stringRedisTemplate.opsForValue().increment(SeckillBuckets.stockKey(voucherId, bucket), stocks[bucket]);
+        }
+        // 2. 库存增加后再增加各个桶的epoch, 读到新epoch的请求一定能看到新增的库存
+        long epoch = 0;
+        for (int bucket = 0; bucket < stocks.length; bucket++) {
+            Long value = stringRedisTemplate.opsForHash()
+                    .increment(SeckillBuckets.timeKey(voucherId, bucket), SeckillBuckets.EPOCH_FIELD, 1);
+            epoch = Math.max(epoch, value == null ? 0 : value);
+        }
+        // 3. 清除所有节点在该epoch之前的售罄标记
+        soldOutRegistry.reset(voucherId, epoch);
+    }
+}
@@ -0,0 +1,39 @@
+package com.hmdp.utils;
+
+import cn.hutool.core.lang.hash.MurmurHash;
+
+import java.nio.charset.StandardCharsets;
+
+/**
+ * 根据预期数量和误判率计算位数组长度与哈希函数个数
+ * 使用murmur128的两个64位结果做双重哈希, 得到k个位下标
+ */
+public abstract class AbstractBloomFilter implements IBloomFilter {
+
+    protected final long numBits;
+    protected final int numHashes;
+
+    protected AbstractBloomFilter(long expectedInsertions, double fpp) {
+        this.numBits = optimalNumOfBits(expectedInsertions, fpp);
+        this.numHashes = optimalNumOfHashes(expectedInsertions, numBits);
+    }
+
+    protected long[] indexes(Object id) {
+        long[] hash = MurmurHash.hash128(id.toString().getBytes(StandardCharsets.UTF_8));
+        long[] indexes = new long[numHashes];
+        for (int i = 0; i < numHashes; i++) {
+            indexes[i] = Math.floorMod(hash[0] + i * hash[1], numBits);
+        }
+        return indexes;
+    }
+
+    // m = -n * ln(p) / (ln2)^2
+    private static long optimalNumOfBits(long n, double p) {
+        return Math.max(64, (long) Math.ceil(-n * Math.log(p) / (Math.log(2) * Math.log(2))));
+    }
+
+    // k = m / n * ln2
+    private static int optimalNumOfHashes(long n, long m) {
+        return Math.max(1, (int) Math.round((double) m / n * Math.log(2)));
+    }
+}
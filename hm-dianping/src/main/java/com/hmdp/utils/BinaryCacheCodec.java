@@ -0,0 +1,331 @@
+package com.hmdp.utils;
+
+import java.lang.reflect.Constructor;
+import java.lang.reflect.Field;
+import java.lang.reflect.Modifier;
+import java.math.BigDecimal;
+import java.nio.charset.StandardCharsets;
+import java.time.LocalDateTime;
+import java.time.ZoneOffset;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * 紧凑二进制格式
+ * <pre>
+ * | 版本(1字节) | 标志(1字节) | 逻辑过期时间(8字节, 可选) | 结构哈希(4字节) | 字段... |
+ * </pre>
+ * 字段按名称排序依次写入, 包装类型前有1字节的非空标记, 整数使用zigzag变长编码, 字符串为长度前缀的UTF-8
+ * 类的字段发生变化时结构哈希不一致, 解码返回null, 由调用方重新加载
+ */
+public class BinaryCacheCodec implements CacheCodec {
+
+    // 格式版本, 不是合法的JSON首字节, 可以和JSON格式共存
+    public static final byte VERSION_1 = (byte) 0xB1;
+
+    private static final byte FLAG_EXPIRE = 1;
+
+    private final Map<Class<?>, Schema> schemas = new ConcurrentHashMap<>();
+
+    /**
+     * 是否支持该类型, 只支持字段均为基本类型、包装类型、字符串、BigDecimal和LocalDateTime的实体
+     */
+    public boolean supports(Class<?> type) {
+        return schema(type) != null;
+    }
+
+    @Override
+    public byte[] encode(Object value, long expireAt) {
+        Schema schema = schema(value.getClass());
+        if (schema == null) {
+            throw new IllegalArgumentException("不支持的类型: " + value.getClass().getName());
+        }
+        Output out = new Output();
+        out.writeByte(VERSION_1);
+        if (expireAt == CacheEntry.NO_EXPIRE) {
+            out.writeByte(0);
+        } else {
+            out.writeByte(FLAG_EXPIRE);
+            out.writeLong(expireAt);
+        }
+        out.writeInt(schema.hash);
+        try {
+            for (FieldCodec field : schema.fields) {
+                field.write(out, field.field.get(value));
+            }
+        } catch (IllegalAccessException e) {
+            throw new IllegalStateException(e);
+        }
+        return out.toByteArray();
+    }
+
+    @Override
+    public <R> CacheEntry<R> decode(byte[] bytes, Class<R> type, boolean withExpire) {
+        Schema schema = schema(type);
+        if (schema == null || bytes.length < 6 || bytes[0] != VERSION_1) {
+            return null;
+        }
+        Input in = new Input(bytes);
+        in.pos = 1;
+        try {
+            byte flags = in.readByte();
+            long expireAt = (flags & FLAG_EXPIRE) != 0 ? in.readLong() : CacheEntry.NO_EXPIRE;
+            if (withExpire && expireAt == CacheEntry.NO_EXPIRE) {
+                return null;
+            }
+            if (in.readInt() != schema.hash) {
+                return null;
+            }
+            R value = type.cast(schema.constructor.newInstance());
+            for (FieldCodec field : schema.fields) {
+                field.field.set(value, field.read(in));
+            }
+            return new CacheEntry<>(value, expireAt);
+        } catch (ReflectiveOperationException e) {
+            throw new IllegalStateException(e);
+        } catch (IndexOutOfBoundsException e) {
+            // 数据不完整
+            return null;
+        }
+    }
+
+    private Schema schema(Class<?> type) {
+        Schema schema = schemas.computeIfAbsent(type, Schema::of);
+        return schema == Schema.UNSUPPORTED ? null : schema;
+    }
+
+    private static class Schema {
+
+        private static final Schema UNSUPPORTED = new Schema(null, null, 0);
+
+        private final Constructor<?> constructor;
+        private final List<FieldCodec> fields;
+        private final int hash;
+
+        private Schema(Constructor<?> constructor, List<FieldCodec> fields, int hash) {
+            this.constructor = constructor;
+            this.fields = fields;
+            this.hash = hash;
+        }
+
+        private static Schema of(Class<?> type) {
+            try {
+                Constructor<?> constructor = type.getDeclaredConstructor();
+                constructor.setAccessible(true);
+                List<Field> all = new ArrayList<>();
+                for (Class<?> c = type; c != null && c != Object.class; c = c.getSuperclass()) {
+                    all.addAll(Arrays.asList(c.getDeclaredFields()));
+                }
+                all.sort(Comparator.comparing(Field::getName));
+                List<FieldCodec> fields = new ArrayList<>(all.size());
+                StringBuilder signature = new StringBuilder(type.getName());
+                for (Field field : all) {
+                    int modifiers = field.getModifiers();
+                    if (Modifier.isStatic(modifiers) || Modifier.isTransient(modifiers)) {
+                        continue;
+                    }
+                    FieldType fieldType = FieldType.of(field.getType());
+                    if (fieldType == null) {
+                        return UNSUPPORTED;
+                    }
+                    field.setAccessible(true);
+                    fields.add(new FieldCodec(field, fieldType));
+                    signature.append(';').append(field.getName()).append(':').append(field.getType().getName());
+                }
+                return new Schema(constructor, fields, signature.toString().hashCode());
+            } catch (NoSuchMethodException e) {
+                return UNSUPPORTED;
+            }
+        }
+    }
+
+    private enum FieldType {
+        LONG, INT, SHORT, BYTE, BOOLEAN, DOUBLE, FLOAT, STRING, BIG_DECIMAL, LOCAL_DATE_TIME;
+
+        private static FieldType of(Class<?> c) {
+            if (c == Long.class || c == long.class) return LONG;
+            if (c == Integer.class || c == int.class) return INT;
+            if (c == Short.class || c == short.class) return SHORT;
+            if (c == Byte.class || c == byte.class) return BYTE;
+            if (c == Boolean.class || c == boolean.class) return BOOLEAN;
+            if (c == Double.class || c == double.class) return DOUBLE;
+            if (c == Float.class || c == float.class) return FLOAT;
+            if (c == String.class) return STRING;
+            if (c == BigDecimal.class) return BIG_DECIMAL;
+            if (c == LocalDateTime.class) return LOCAL_DATE_TIME;
+            return null;
+        }
+    }
+
+    private static class FieldCodec {
+        private final Field field;
+        private final FieldType type;
+        private final boolean primitive;
+
+        private FieldCodec(Field field, FieldType type) {
+            this.field = field;
+            this.type = type;
+            this.primitive = field.getType().isPrimitive();
+        }
+
+        private void write(Output out, Object value) {
+            // 包装类型写入非空标记
+            if (!primitive) {
+                if (value == null) {
+                    out.writeByte(0);
+                    return;
+                }
+                out.writeByte(1);
+            }
+            switch (type) {
+                case LONG: out.writeVarLong(zigzag((Long) value)); break;
+                case INT: out.writeVarLong(zigzag((Integer) value)); break;
+                case SHORT: out.writeVarLong(zigzag((Short) value)); break;
+                case BYTE: out.writeByte((Byte) value); break;
+                case BOOLEAN: out.writeByte((Boolean) value ? 1 : 0); break;
+                case DOUBLE: out.writeLong(Double.doubleToRawLongBits((Double) value)); break;
+                case FLOAT: out.writeInt(Float.floatToRawIntBits((Float) value)); break;
+                case STRING: out.writeString((String) value); break;
+                case BIG_DECIMAL: out.writeString(value.toString()); break;
+                case LOCAL_DATE_TIME:
+                    LocalDateTime time = (LocalDateTime) value;
+                    out.writeVarLong(zigzag(time.toEpochSecond(ZoneOffset.UTC)));
+                    out.writeVarLong(time.getNano());
+                    break;
+                default: throw new IllegalStateException();
+            }
+        }
+
+        private Object read(Input in) {
+            if (!primitive && in.readByte() == 0) {
+                return null;
+            }
+            switch (type) {
+                case LONG: return unzigzag(in.readVarLong());
+                case INT: return (int) unzigzag(in.readVarLong());
+                case SHORT: return (short) unzigzag(in.readVarLong());
+                case BYTE: return in.readByte();
+                case BOOLEAN: return in.readByte() != 0;
+                case DOUBLE: return Double.longBitsToDouble(in.readLong());
+                case FLOAT: return Float.intBitsToFloat(in.readInt());
+                case STRING: return in.readString();
+                case BIG_DECIMAL: return new BigDecimal(in.readString());
+                case LOCAL_DATE_TIME:
+                    long second = unzigzag(in.readVarLong());
+                    int nano = (int) in.readVarLong();
+                    return LocalDateTime.ofEpochSecond(second, nano, ZoneOffset.UTC);
+                default: throw new IllegalStateException();
+            }
+        }
+
+        private static long zigzag(long n) {
+            return (n << 1) ^ (n >> 63);
+        }
+
+        private static long unzigzag(long n) {
+            return (n >>> 1) ^ -(n & 1);
+        }
+    }
+
+    private static class Output {
+        private byte[] buf = new byte[128];
+        private int pos;
+
+        private void ensure(int n) {
+            if (pos + n > buf.length) {
+                buf = Arrays.copyOf(buf, Math.max(buf.length << 1, pos + n));
+            }
+        }
+
+        private void writeByte(int b) {
+            ensure(1);
+            buf[pos++] = (byte) b;
+        }
+
+        private void writeInt(int v) {
+            ensure(4);
+            for (int i = 3; i >= 0; i--) {
+                buf[pos++] = (byte) (v >>> (i * 8));
+            }
+        }
+
+        private void writeLong(long v) {
+            ensure(8);
+            for (int i = 7; i >= 0; i--) {
+                buf[pos++] = (byte) (v >>> (i * 8));
+            }
+        }
+
+        private void writeVarLong(long v) {
+            ensure(10);
+            while ((v & ~0x7FL) != 0) {
+                buf[pos++] = (byte) ((v & 0x7F) | 0x80);
+                v >>>= 7;
+            }
+            buf[pos++] = (byte) v;
+        }
+
+        private void writeString(String s) {
+            byte[] bytes = s.getBytes(StandardCharsets.UTF_8);
+            writeVarLong(bytes.length);
+            ensure(bytes.length);
+            System.arraycopy(bytes, 0, buf, pos, bytes.length);
+            pos += bytes.length;
+        }
+
+        private byte[] toByteArray() {
+            return Arrays.copyOf(buf, pos);
+        }
+    }
+
+    private static class Input {
+        private final byte[] buf;
+        private int pos;
+
+        private Input(byte[] buf) {
+            this.buf = buf;
+        }
+
+        private byte readByte() {
+            return buf[pos++];
+        }
+
+        private int readInt() {
+            int v = 0;
+            for (int i = 0; i < 4; i++) {
+                v = (v << 8) | (buf[pos++] & 0xFF);
+            }
+            return v;
+        }
+
+        private long readLong() {
+            long v = 0;
+            for (int i = 0; i < 8; i++) {
+                v = (v << 8) | (buf[pos++] & 0xFF);
+            }
+            return v;
+        }
+
+        private long readVarLong() {
+            long v = 0;
+            for (int shift = 0; ; shift += 7) {
+                byte b = buf[pos++];
+                v |= (long) (b & 0x7F) << shift;
+                if ((b & 0x80) == 0) {
+                    return v;
+                }
+            }
+        }
+
+        private String readString() {
+            int length = (int) readVarLong();
+            String s = new String(buf, pos, length, StandardCharsets.UTF_8);
+            pos += length;
+            return s;
+        }
+    }
+}
@@ -0,0 +1,177 @@
+package com.hmdp.utils;
+
+import cn.hutool.core.util.BooleanUtil;
+import cn.hutool.core.util.IdUtil;
+import com.baomidou.mybatisplus.core.conditions.query.QueryWrapper;
+import com.hmdp.entity.Blog;
+import com.hmdp.mapper.BlogMapper;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.core.io.ClassPathResource;
+import org.springframework.data.redis.connection.StringRedisConnection;
+import org.springframework.data.redis.core.RedisCallback;
+import org.springframework.data.redis.core.StringRedisTemplate;
+import org.springframework.data.redis.core.ZSetOperations;
+import org.springframework.data.redis.core.script.DefaultRedisScript;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+
+import javax.annotation.Resource;
+import java.time.LocalDateTime;
+import java.time.ZoneOffset;
+import java.util.Collections;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.TimeUnit;
+import java.util.stream.Collectors;
+
+import static com.hmdp.utils.RedisConstants.*;
+import static com.hmdp.utils.SystemConstants.*;
+
+/**
+ * 博客热榜, 代替数据库中按liked排序的分页查询
+ * 点赞时由blog-like.lua更新分数, 定期从数据库重建, 修复redis数据丢失或切换计分方式
+ * likes: 分数为点赞数; decay: 分数为log10(点赞数) + 发布时间/BLOG_HOT_DECAY_SECONDS,
+ * 晚发布BLOG_HOT_DECAY_SECONDS秒的博客只需1/10的点赞数即可排在相同位置, 分数不随时间变化, 不需要定时重新计算
+ */
+@Slf4j
+@Component
+public class BlogHotRank {
+
+    public static final String SCORE_DECAY = "decay";
+
+    private static final long BEGIN_TIMESTAMP = 1705881600L;
+
+    private static final DefaultRedisScript<Long> UNLOCK_SCRIPT;
+    static {
+        UNLOCK_SCRIPT = new DefaultRedisScript<>();
+        UNLOCK_SCRIPT.setLocation(new ClassPathResource("unlock-token.lua"));
+        UNLOCK_SCRIPT.setResultType(Long.class);
+    }
+
+    @Value("${hmdp.blog.hot-score:likes}")
+    private String scoreMode;
+
+    @Resource
+    private StringRedisTemplate stringRedisTemplate;
+
+    @Resource
+    private BlogMapper blogMapper;
+
+    public boolean isDecay() {
+        return SCORE_DECAY.equals(scoreMode);
+    }
+
+    /**
+     * 新发布的博客加入热榜
+     */
+    public void add(Blog blog) {
+        LocalDateTime createTime = blog.getCreateTime() == null ? LocalDateTime.now() : blog.getCreateTime();
+        String id = blog.getId().toString();
+        double score = 0;
+        if (isDecay()) {
+            score = base(createTime);
+            stringRedisTemplate.opsForHash().put(BLOG_HOT_BASE_KEY, id, String.valueOf(score));
+        }
+        // 热榜尚未构建时不写入, 避免生成残缺的热榜, 由重建加入
+        if (BooleanUtil.isTrue(stringRedisTemplate.hasKey(BLOG_HOT_KEY))) {
+            stringRedisTemplate.opsForZSet().add(BLOG_HOT_KEY, id, score);
+        }
+    }
+
+    /**
+     * 按排名查询
+     * @return 热榜尚未构建时返回null
+     */
+    public List<Long> range(long start, int count) {
+        Set<String> ids = stringRedisTemplate.opsForZSet().reverseRange(BLOG_HOT_KEY, start, start + count - 1);
+        if (ids == null || ids.isEmpty()) {
+            return BooleanUtil.isTrue(stringRedisTemplate.hasKey(BLOG_HOT_KEY)) ? Collections.emptyList() : null;
+        }
+        return ids.stream().map(Long::valueOf).collect(Collectors.toList());
+    }
+
+    /**
+     * 按分数游标查询, 深分页不需要跳过前面的元素
+     * @param max 上一页最小的分数
+     * @param offset 上一页中与最小分数相同的元素个数
+     */
+    public Set<ZSetOperations.TypedTuple<String>> scroll(double max, int offset, int count) {
+        return stringRedisTemplate.opsForZSet()
+                .reverseRangeByScoreWithScores(BLOG_HOT_KEY, Double.NEGATIVE_INFINITY, max, offset, count);
+    }
+
+    /**
+     * 启动时立即构建, 之后定期从数据库重建
+     * 点赞数优先使用redis中的计数, 数据库中的liked可能还未写入
+     */
+    @Scheduled(initialDelay = 0, fixedDelay = BLOG_HOT_REBUILD_INTERVAL)
+    public void rebuild() {
+        // 热榜由所有节点共享, 同一时间只有一个节点重建, 锁的值为本次获取的token, 重建完成后释放
+        String token = IdUtil.fastSimpleUUID();
+        Boolean isLock = stringRedisTemplate.opsForValue()
+                .setIfAbsent(LOCK_BLOG_HOT_KEY, token, BLOG_HOT_REBUILD_INTERVAL / 2, TimeUnit.MILLISECONDS);
+        if (!BooleanUtil.isTrue(isLock)) {
+            return;
+        }
+        long begin = System.currentTimeMillis();
+        String tempKey = BLOG_HOT_KEY + ":rebuild";
+        try {
+            stringRedisTemplate.delete(tempKey);
+            long lastId = 0;
+            long count = 0;
+            while (true) {
+                // 1. 分批查询博客
+                List<Blog> blogs = blogMapper.selectList(new QueryWrapper<Blog>()
+                        .select("id", "liked", "create_time")
+                        .gt("id", lastId)
+                        .orderByAsc("id")
+                        .last("LIMIT " + BLOG_HOT_REBUILD_BATCH_SIZE));
+                if (blogs.isEmpty()) {
+                    break;
+                }
+                // 2. 读取redis中的点赞数
+                List<Object> fields = blogs.stream().map(blog -> blog.getId().toString()).collect(Collectors.toList());
+                List<Object> counts = stringRedisTemplate.opsForHash().multiGet(BLOG_LIKE_COUNT_KEY, fields);
+                // 3. 通过管道写入新的热榜
+                stringRedisTemplate.executePipelined((RedisCallback<Object>) connection -> {
+                    StringRedisConnection conn = (StringRedisConnection) connection;
+                    for (int i = 0; i < blogs.size(); i++) {
+                        Blog blog = blogs.get(i);
+                        String id = blog.getId().toString();
+                        long likes = counts.get(i) != null ? Long.parseLong(counts.get(i).toString())
+                                : blog.getLiked() == null ? 0 : blog.getLiked();
+                        double score = likes;
+                        if (isDecay()) {
+                            double base = base(blog.getCreateTime());
+                            conn.hSet(BLOG_HOT_BASE_KEY, id, String.valueOf(base));
+                            score = Math.log10(Math.max(likes, 1)) + base;
+                        }
+                        conn.zAdd(tempKey, score, id);
+                    }
+                    return null;
+                });
+                count += blogs.size();
+                lastId = blogs.get(blogs.size() - 1).getId();
+            }
+            // 4. 替换旧的热榜, 重建期间的点赞在下一次点赞或重建时更新
+            if (count > 0) {
+                stringRedisTemplate.rename(tempKey, BLOG_HOT_KEY);
+            } else {
+                stringRedisTemplate.delete(BLOG_HOT_KEY);
+            }
+            log.info("博客热榜重建完成, 计分方式:{}, 数量:{}, 耗时:{}ms", scoreMode, count, System.currentTimeMillis() - begin);
+        } catch (Exception e) {
+            log.error("博客热榜重建失败", e);
+        } finally {
+            // 只释放自己的锁, 超时后被其他节点获取的锁不删除
+            stringRedisTemplate.execute(UNLOCK_SCRIPT, Collections.singletonList(LOCK_BLOG_HOT_KEY), token);
+        }
+    }
+
+    // 发布时间对应的基础分数
+    private double base(LocalDateTime createTime) {
+        long seconds = (createTime == null ? LocalDateTime.now() : createTime).toEpochSecond(ZoneOffset.UTC) - BEGIN_TIMESTAMP;
+        return (double) seconds / BLOG_HOT_DECAY_SECONDS;
+    }
+}
@@ -0,0 +1,229 @@
+package com.hmdp.utils;
+
+import com.baomidou.mybatisplus.core.conditions.query.QueryWrapper;
+import com.baomidou.mybatisplus.core.conditions.update.UpdateWrapper;
+import com.hmdp.dto.LikeResult;
+import com.hmdp.entity.Blog;
+import com.hmdp.mapper.BlogMapper;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.core.io.ClassPathResource;
+import org.springframework.data.redis.connection.StringRedisConnection;
+import org.springframework.data.redis.core.RedisCallback;
+import org.springframework.data.redis.core.StringRedisTemplate;
+import org.springframework.data.redis.core.script.DefaultRedisScript;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+
+import javax.annotation.Resource;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.stream.Collectors;
+
+import static com.hmdp.utils.RedisConstants.*;
+import static com.hmdp.utils.SystemConstants.*;
+
+/**
+ * 博客点赞只写redis: 点赞集合记录谁点过赞, BLOG_LIKE_COUNT_KEY记录点赞数, BLOG_LIKE_DELTA_KEY记录尚未写入数据库的变化量
+ * 定时将变化量按博客合并后一条语句写入数据库, 再定期以点赞集合为准修正点赞数和数据库
+ * 写入数据库和修正由同一把分布式锁串行, 所有节点中同一时间只有一个在执行
+ * 点赞和修正脚本同时访问单个博客的点赞集合和共享的hash、热榜, 假设redis为单节点(或主从), 不支持redis集群
+ */
+@Slf4j
+@Component
+public class BlogLikeCounter {
+
+    @SuppressWarnings("rawtypes")
+    private static final DefaultRedisScript<List> LIKE_SCRIPT;
+    static {
+        LIKE_SCRIPT = new DefaultRedisScript<>();
+        LIKE_SCRIPT.setLocation(new ClassPathResource("blog-like.lua"));
+        LIKE_SCRIPT.setResultType(List.class);
+    }
+
+    @SuppressWarnings("rawtypes")
+    private static final DefaultRedisScript<List> TAKE_SCRIPT;
+    static {
+        TAKE_SCRIPT = new DefaultRedisScript<>();
+        TAKE_SCRIPT.setLocation(new ClassPathResource("blog-like-take.lua"));
+        TAKE_SCRIPT.setResultType(List.class);
+    }
+
+    private static final DefaultRedisScript<Long> RECONCILE_SCRIPT;
+    static {
+        RECONCILE_SCRIPT = new DefaultRedisScript<>();
+        RECONCILE_SCRIPT.setLocation(new ClassPathResource("blog-like-reconcile.lua"));
+        RECONCILE_SCRIPT.setResultType(Long.class);
+    }
+
+    @Resource
+    private StringRedisTemplate stringRedisTemplate;
+
+    @Resource
+    private BlogMapper blogMapper;
+
+    @Resource
+    private RedisLockRegistry redisLockRegistry;
+
+    @Resource
+    private BlogHotRank blogHotRank;
+
+    /**
+     * 点赞或取消点赞, 一次lua调用完成判断、修改点赞集合、点赞数和热榜分数
+     */
+    public LikeResult toggle(Long blogId, Long userId) {
+        List<?> reply = stringRedisTemplate.execute(LIKE_SCRIPT,
+                Arrays.asList(BLOG_LIKED_KEY + blogId, BLOG_LIKE_COUNT_KEY, BLOG_LIKE_DELTA_KEY, BLOG_HOT_KEY, BLOG_HOT_BASE_KEY),
+                userId.toString(), blogId.toString(), String.valueOf(System.currentTimeMillis()),
+                blogHotRank.isDecay() ? BlogHotRank.SCORE_DECAY : "likes");
+        boolean isLike = ((Long) reply.get(0)) == 1;
+        return new LikeResult(isLike, ((Long) reply.get(1)).intValue());
+    }
+
+    /**
+     * 批量查询点赞数, 不存在的以点赞集合的数量初始化
+     */
+    public Map<Long, Integer> getCounts(List<Long> blogIds) {
+        if (blogIds.isEmpty()) {
+            return Collections.emptyMap();
+        }
+        // 1. 一次查询全部点赞数
+        List<Object> fields = blogIds.stream().map(String::valueOf).collect(Collectors.toList());
+        List<Object> values = stringRedisTemplate.opsForHash().multiGet(BLOG_LIKE_COUNT_KEY, fields);
+        Map<Long, Integer> counts = new HashMap<>(blogIds.size() * 2);
+        List<Long> missIds = new ArrayList<>();
+        for (int i = 0; i < blogIds.size(); i++) {
+            Object value = values.get(i);
+            if (value != null) {
+                counts.put(blogIds.get(i), Integer.valueOf(value.toString()));
+            } else {
+                missIds.add(blogIds.get(i));
+            }
+        }
+        if (missIds.isEmpty()) {
+            return counts;
+        }
+        // 2. 不存在的通过管道查询点赞集合的数量并写回
+        List<Object> cards = stringRedisTemplate.executePipelined((RedisCallback<Object>) connection -> {
+            StringRedisConnection conn = (StringRedisConnection) connection;
+            for (Long blogId : missIds) {
+                conn.zCard(BLOG_LIKED_KEY + blogId);
+            }
+            return null;
+        });
+        stringRedisTemplate.executePipelined((RedisCallback<Object>) connection -> {
+            StringRedisConnection conn = (StringRedisConnection) connection;
+            for (int i = 0; i < missIds.size(); i++) {
+                conn.hSetNX(BLOG_LIKE_COUNT_KEY, missIds.get(i).toString(), cards.get(i).toString());
+            }
+            return null;
+        });
+        for (int i = 0; i < missIds.size(); i++) {
+            counts.put(missIds.get(i), ((Long) cards.get(i)).intValue());
+        }
+        return counts;
+    }
+
+    /**
+     * 将点赞数的变化量写入数据库
+     */
+    @Scheduled(fixedDelay = BLOG_LIKE_FLUSH_INTERVAL)
+    public void flush() {
+        ILock lock = redisLockRegistry.getLock(BLOG_LIKE_LOCK);
+        // 其他节点正在写入或修正
+        if (!lock.tryLock()) {
+            return;
+        }
+        try {
+            doFlush();
+        } catch (Exception e) {
+            log.error("点赞数写入数据库失败", e);
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    private void doFlush() {
+        // 1. 取出并清空变化量
+        List<?> reply = stringRedisTemplate.execute(TAKE_SCRIPT, Collections.singletonList(BLOG_LIKE_DELTA_KEY));
+        if (reply == null || reply.isEmpty()) {
+            return;
+        }
+        Map<Long, Long> deltas = new HashMap<>(reply.size());
+        for (int i = 0; i + 1 < reply.size(); i += 2) {
+            long delta = Long.parseLong(reply.get(i + 1).toString());
+            if (delta != 0) {
+                deltas.put(Long.valueOf(reply.get(i).toString()), delta);
+            }
+        }
+        if (deltas.isEmpty()) {
+            return;
+        }
+        // 2. 一条语句写入数据库
+        try {
+            blogMapper.incrLikedBatch(deltas);
+        } catch (Exception e) {
+            // 3. 写入失败, 变化量放回redis等待下次写入
+            stringRedisTemplate.executePipelined((RedisCallback<Object>) connection -> {
+                StringRedisConnection conn = (StringRedisConnection) connection;
+                deltas.forEach((blogId, delta) -> conn.hIncrBy(BLOG_LIKE_DELTA_KEY, blogId.toString(), delta));
+                return null;
+            });
+            throw e;
+        }
+        log.debug("点赞数已写入数据库, 博客数:{}", deltas.size());
+    }
+
+    /**
+     * 以点赞集合为准修正redis中的点赞数和数据库中的liked, 修复节点宕机或写入失败造成的误差
+     */
+    @Scheduled(initialDelay = BLOG_LIKE_RECONCILE_INTERVAL, fixedDelay = BLOG_LIKE_RECONCILE_INTERVAL)
+    public void reconcile() {
+        ILock lock = redisLockRegistry.getLock(BLOG_LIKE_LOCK);
+        if (!lock.tryLock()) {
+            return;
+        }
+        long begin = System.currentTimeMillis();
+        int fixed = 0;
+        try {
+            long lastId = 0;
+            while (true) {
+                // 1. 分批查询博客id和数据库中的点赞数
+                List<Blog> blogs = blogMapper.selectList(new QueryWrapper<Blog>()
+                        .select("id", "liked")
+                        .gt("id", lastId)
+                        .orderByAsc("id")
+                        .last("LIMIT " + BLOG_LIKE_RECONCILE_BATCH_SIZE));
+                if (blogs.isEmpty()) {
+                    break;
+                }
+                for (Blog blog : blogs) {
+                    // 2. 修正redis中的点赞数, 得到数据库中应有的点赞数
+                    Long expected = stringRedisTemplate.execute(RECONCILE_SCRIPT,
+                            Arrays.asList(BLOG_LIKED_KEY + blog.getId(), BLOG_LIKE_COUNT_KEY, BLOG_LIKE_DELTA_KEY),
+                            blog.getId().toString());
+                    // 3. 点赞集合不存在(返回-1)时无法判断, 保留redis和数据库中的点赞数
+                    if (expected == null || expected < 0) {
+                        continue;
+                    }
+                    // 4. 修正数据库
+                    if (blog.getLiked() == null || expected.intValue() != blog.getLiked()) {
+                        blogMapper.update(null, new UpdateWrapper<Blog>()
+                                .set("liked", expected)
+                                .eq("id", blog.getId()));
+                        fixed++;
+                    }
+                }
+                lastId = blogs.get(blogs.size() - 1).getId();
+            }
+            log.info("点赞数修正完成, 修正数量:{}, 耗时:{}ms", fixed, System.currentTimeMillis() - begin);
+        } catch (Exception e) {
+            log.error("点赞数修正失败", e);
+        } finally {
+            lock.unlock();
+        }
+    }
+}
@@ -0,0 +1,248 @@
+package com.hmdp.utils;
+
+import cn.hutool.core.util.BooleanUtil;
+import com.baomidou.mybatisplus.core.conditions.query.QueryWrapper;
+import com.hmdp.entity.Blog;
+import com.hmdp.entity.Shop;
+import com.hmdp.mapper.BlogMapper;
+import com.hmdp.mapper.ShopMapper;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.data.redis.connection.Message;
+import org.springframework.data.redis.connection.MessageListener;
+import org.springframework.data.redis.core.StringRedisTemplate;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+
+import javax.annotation.PostConstruct;
+import javax.annotation.Resource;
+import java.nio.charset.StandardCharsets;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.function.Function;
+import java.util.stream.Collectors;
+
+import static com.hmdp.utils.RedisConstants.*;
+
+/**
+ * 按缓存key前缀管理布隆过滤器, 拦截数据库中不存在的id, 防止缓存穿透
+ * 启动时从数据库加载全部id, 之后定期重建; 新增数据时同步写入
+ * 过滤器尚未加载完成时一律放行
+ */
+@Slf4j
+@Component
+public class BloomFilterRegistry implements MessageListener {
+
+    public static final String BACKEND_REDIS = "redis";
+
+    @Resource
+    private ShopMapper shopMapper;
+
+    @Resource
+    private BlogMapper blogMapper;
+
+    @Resource
+    private StringRedisTemplate stringRedisTemplate;
+
+    // local: 进程内位数组, 新增的id通过redis频道同步到其他节点; redis: 所有节点共享redis bitmap
+    @Value("${hmdp.bloom.backend:local}")
+    private String backend;
+
+    @Value("${hmdp.bloom.expected-insertions:1000000}")
+    private long expectedInsertions;
+
+    @Value("${hmdp.bloom.fpp:0.01}")
+    private double fpp;
+
+    private final Map<String, Holder> holders = new ConcurrentHashMap<>();
+
+    @PostConstruct
+    private void init() {
+        register(CACHE_SHOP_KEY, lastId -> shopMapper.selectList(new QueryWrapper<Shop>()
+                        .select("id").gt("id", lastId).orderByAsc("id").last("LIMIT " + BLOOM_LOAD_BATCH_SIZE))
+                .stream().map(Shop::getId).collect(Collectors.toList()));
+        register(CACHE_BLOG_KEY, lastId -> blogMapper.selectList(new QueryWrapper<Blog>()
+                        .select("id").gt("id", lastId).orderByAsc("id").last("LIMIT " + BLOOM_LOAD_BATCH_SIZE))
+                .stream().map(Blog::getId).collect(Collectors.toList()));
+    }
+
+    private void register(String keyPrefix, Function<Long, List<Long>> idLoader) {
+        String key = BLOOM_FILTER_KEY + keyPrefix;
+        Holder holder = new Holder(newFilter(key), idLoader);
+        if (BACKEND_REDIS.equals(backend)) {
+            holder.rebuildFilter = newFilter(key + BLOOM_REBUILD_SUFFIX);
+        }
+        holders.put(keyPrefix, holder);
+    }
+
+    private IBloomFilter newFilter(String key) {
+        if (BACKEND_REDIS.equals(backend)) {
+            return new RedisBloomFilter(key, expectedInsertions, fpp, stringRedisTemplate);
+        }
+        return new LocalBloomFilter(expectedInsertions, fpp);
+    }
+
+    /**
+     * 判断id是否可能存在, 未注册过滤器的前缀一律返回true
+     */
+    public boolean mightContain(String keyPrefix, Object id) {
+        Holder holder = holders.get(keyPrefix);
+        if (holder == null || !holder.ready) {
+            return true;
+        }
+        boolean exists = holder.filter.mightContain(id);
+        if (!exists) {
+            holder.rejected.increment();
+        }
+        return exists;
+    }
+
+    /**
+     * 新增数据后调用, 将id写入过滤器
+     */
+    public void add(String keyPrefix, Object id) {
+        if (addLocal(keyPrefix, id) && !BACKEND_REDIS.equals(backend)) {
+            // 本地过滤器, 通知其他节点
+            stringRedisTemplate.convertAndSend(BLOOM_ADD_CHANNEL, keyPrefix + id);
+        }
+    }
+
+    private boolean addLocal(String keyPrefix, Object id) {
+        Holder holder = holders.get(keyPrefix);
+        if (holder == null) {
+            return false;
+        }
+        if (holder.rebuildFilter != null) {
+            // redis过滤器可能正由其他节点重建, 先写入新的位数组再写入旧的, 无论新位数组何时替换旧的都不会丢失
+            String rebuildingKey = BLOOM_FILTER_KEY + keyPrefix + BLOOM_REBUILDING_SUFFIX;
+            if (BooleanUtil.isTrue(stringRedisTemplate.hasKey(rebuildingKey))) {
+                holder.rebuildFilter.add(id);
+            }
+        } else if (holder.rebuilding) {
+            // 本地过滤器重建期间新增的id, 重建完成后补写到新的过滤器中
+            holder.pending.add(id.toString());
+        }
+        holder.filter.add(id);
+        return true;
+    }
+
+    @Override
+    public void onMessage(Message message, byte[] pattern) {
+        String key = new String(message.getBody(), StandardCharsets.UTF_8);
+        holders.keySet().stream()
+                .filter(key::startsWith)
+                .findFirst()
+                .ifPresent(keyPrefix -> addLocal(keyPrefix, key.substring(keyPrefix.length())));
+    }
+
+    /**
+     * 启动时立即加载, 之后定期重建, 清除已删除数据的残留位
+     */
+    @Scheduled(initialDelay = 0, fixedDelay = BLOOM_REBUILD_INTERVAL)
+    public void rebuildAll() {
+        holders.forEach((keyPrefix, holder) -> {
+            try {
+                rebuild(keyPrefix, holder);
+            } catch (Exception e) {
+                log.error("布隆过滤器重建失败, keyPrefix:{}", keyPrefix, e);
+            }
+        });
+    }
+
+    private void rebuild(String keyPrefix, Holder holder) {
+        String key = BLOOM_FILTER_KEY + keyPrefix;
+        boolean isRedis = BACKEND_REDIS.equals(backend);
+        if (isRedis) {
+            // redis过滤器由所有节点共享, 一个周期内只需要一个节点重建
+            Boolean isLock = stringRedisTemplate.opsForValue()
+                    .setIfAbsent(LOCK_BLOOM_KEY + keyPrefix, "1", BLOOM_REBUILD_INTERVAL / 2, TimeUnit.MILLISECONDS);
+            if (!BooleanUtil.isTrue(isLock)) {
+                holder.ready = BooleanUtil.isTrue(stringRedisTemplate.hasKey(key));
+                return;
+            }
+        }
+
+        long begin = System.currentTimeMillis();
+        String tempKey = key + BLOOM_REBUILD_SUFFIX;
+        String rebuildingKey = key + BLOOM_REBUILDING_SUFFIX;
+        holder.rebuilding = true;
+        try {
+            // 1. 分批加载全部id到新的过滤器
+            IBloomFilter filter = isRedis ? holder.rebuildFilter : newFilter(key);
+            if (isRedis) {
+                // 先清空新的位数组再设置重建标记, 标记存在期间所有节点新增的id同时写入新旧两个位数组
+                stringRedisTemplate.delete(tempKey);
+                stringRedisTemplate.opsForValue().set(rebuildingKey, "1", BLOOM_REBUILD_INTERVAL / 2, TimeUnit.MILLISECONDS);
+            }
+            long lastId = 0;
+            long count = 0;
+            while (true) {
+                List<Long> ids = holder.idLoader.apply(lastId);
+                if (ids.isEmpty()) {
+                    break;
+                }
+                filter.addAll(ids);
+                count += ids.size();
+                lastId = ids.get(ids.size() - 1);
+            }
+
+            // 2. 替换旧的过滤器
+            if (isRedis) {
+                // 重建期间其他节点新增的id已写入新的位数组, 即使数据库为空也可能存在
+                if (BooleanUtil.isTrue(stringRedisTemplate.hasKey(tempKey))) {
+                    stringRedisTemplate.rename(tempKey, key);
+                } else {
+                    stringRedisTemplate.delete(key);
+                }
+            } else {
+                holder.filter = filter;
+                // 3. 补写重建期间新增的id
+                holder.rebuilding = false;
+                for (String id : holder.pending) {
+                    holder.filter.add(id);
+                }
+                holder.pending.clear();
+            }
+            holder.ready = true;
+            log.info("布隆过滤器重建完成, keyPrefix:{}, 数量:{}, 耗时:{}ms", keyPrefix, count, System.currentTimeMillis() - begin);
+        } finally {
+            holder.rebuilding = false;
+            if (isRedis) {
+                stringRedisTemplate.delete(rebuildingKey);
+            }
+        }
+    }
+
+    public Map<String, Object> stats() {
+        Map<String, Object> stats = new LinkedHashMap<>();
+        stats.put("backend", backend);
+        holders.forEach((keyPrefix, holder) -> {
+            Map<String, Object> item = new LinkedHashMap<>();
+            item.put("ready", holder.ready);
+            item.put("rejected", holder.rejected.sum());
+            stats.put(keyPrefix, item);
+        });
+        return stats;
+    }
+
+    private static class Holder {
+        private volatile IBloomFilter filter;
+        // redis过滤器重建使用的临时位数组
+        private IBloomFilter rebuildFilter;
+        private volatile boolean ready;
+        private volatile boolean rebuilding;
+        private final Function<Long, List<Long>> idLoader;
+        private final Set<String> pending = ConcurrentHashMap.newKeySet();
+        private final LongAdder rejected = new LongAdder();
+
+        private Holder(IBloomFilter filter, Function<Long, List<Long>> idLoader) {
+            this.filter = filter;
+            this.idLoader = idLoader;
+        }
+    }
+}
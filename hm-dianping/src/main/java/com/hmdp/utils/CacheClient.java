@@ -0,0 +1,448 @@
+package com.hmdp.utils;
+
+import cn.hutool.core.thread.ThreadUtil;
+import cn.hutool.core.util.BooleanUtil;
+import cn.hutool.core.util.IdUtil;
+import org.springframework.core.io.ClassPathResource;
+import org.springframework.data.redis.connection.RedisStringCommands;
+import org.springframework.data.redis.core.RedisCallback;
+import org.springframework.data.redis.core.StringRedisTemplate;
+import org.springframework.data.redis.core.script.DefaultRedisScript;
+import org.springframework.data.redis.core.types.Expiration;
+import org.springframework.stereotype.Component;
+
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Function;
+import java.util.function.Supplier;
+import java.util.stream.Collectors;
+
+import static com.hmdp.utils.RedisConstants.*;
+import static com.hmdp.utils.SystemConstants.CACHE_REFRESH_BETA;
+
+
+@Component
+public class CacheClient {
+
+    private static final DefaultRedisScript<Long> UNLOCK_SCRIPT;
+    static {
+        UNLOCK_SCRIPT = new DefaultRedisScript<>();
+        UNLOCK_SCRIPT.setLocation(new ClassPathResource("unlock-token.lua"));
+        UNLOCK_SCRIPT.setResultType(Long.class);
+    }
+
+    private StringRedisTemplate stringRedisTemplate;
+
+    private NearCache nearCache;
+
+    private BloomFilterRegistry bloomFilterRegistry;
+
+    // 合并同一个key上的并发数据库查询
+    private final SingleFlight singleFlight = new SingleFlight();
+
+    // 重建线程池
+    private CacheRebuildExecutor cacheRebuildExecutor;
+
+    // 缓存数据的编解码
+    private CacheCodec cacheCodec;
+
+
+    public CacheClient(StringRedisTemplate stringRedisTemplate,
+                       NearCache nearCache,
+                       BloomFilterRegistry bloomFilterRegistry,
+                       CacheRebuildExecutor cacheRebuildExecutor,
+                       CacheCodec cacheCodec) {
+        this.stringRedisTemplate = stringRedisTemplate;
+        this.nearCache = nearCache;
+        this.bloomFilterRegistry = bloomFilterRegistry;
+        this.cacheRebuildExecutor = cacheRebuildExecutor;
+        this.cacheCodec = cacheCodec;
+    }
+
+
+    public void set(String key, Object value, Long time, TimeUnit timeUnit){
+        setBytes(key, encode(value, CacheEntry.NO_EXPIRE), time, timeUnit);
+    }
+
+    // 设置逻辑过期
+    public void setWithLogicExpire(String key, Object value, Long time, TimeUnit timeUnit){
+        setWithLogicExpire(key, value, time, null, timeUnit);
+    }
+
+    /**
+     * 设置逻辑过期
+     * @param softTime 逻辑过期时间, 过期后读取时异步重建
+     * @param hardTime redis中数据的实际过期时间, 为空则不过期
+     */
+    public void setWithLogicExpire(String key, Object value, Long softTime, Long hardTime, TimeUnit timeUnit){
+        long expireAt = System.currentTimeMillis() + timeUnit.toMillis(softTime);
+        setBytes(key, cacheCodec.encode(value, expireAt), hardTime, timeUnit);
+        // 数据已更新, 通知各节点清除本地缓存
+        nearCache.invalidate(key);
+    }
+
+    // 删除缓存, 同时清除所有节点的本地缓存
+    public void delete(String key){
+        stringRedisTemplate.delete(key);
+        nearCache.invalidate(key);
+    }
+
+
+    // 缓存空值工具类
+    public <R, ID> R queryWithPassThrough(
+            String keyPrefix,
+            ID id,
+            Class<R> type,
+            Function<ID, R> dbFallback,
+            Long time,
+            TimeUnit timeUnit){
+        return queryWithPassThrough(keyPrefix, id, type, dbFallback, null, time, timeUnit);
+    }
+
+    /**
+     * 缓存空值, 未命中时合并同一个key上的并发请求, 只有一个线程查询数据库
+     * @param lockKeyPrefix 不为空时, 额外使用该前缀的redis锁在多个节点之间合并请求
+     */
+    public <R, ID> R queryWithPassThrough(
+            String keyPrefix,
+            ID id,
+            Class<R> type,
+            Function<ID, R> dbFallback,
+            String lockKeyPrefix,
+            Long time,
+            TimeUnit timeUnit){
+        String key = keyPrefix + id;
+        // 1. 查询本地缓存
+        Object local = nearCache.get(keyPrefix, key);
+        if (local != null) {
+            return local == NearCache.NULL_VALUE ? null : type.cast(local);
+        }
+
+        // 2. 布隆过滤器判断id是否存在, 不存在直接返回
+        if (!bloomFilterRegistry.mightContain(keyPrefix, id)) {
+            return null;
+        }
+
+        // 3. 查询redis
+        byte[] bytes = getBytes(key);
+
+        //  4. 判断值是否为空
+        if (bytes != null && bytes.length == 0){
+            //  为空直接返回
+            nearCache.put(key, null);
+            return null;
+        }
+
+        // 5. 判断是否存在
+        CacheEntry<R> entry = bytes == null ? null : cacheCodec.decode(bytes, type, false);
+        if (entry != null) {
+            // 存在写入本地缓存并返回
+            nearCache.put(key, entry.getValue());
+            return entry.getValue();
+        }
+
+        // 6. 不存在查询数据库, 同一个key同时只有一个线程查询, 其他线程等待其结果
+        R r = singleFlight.execute(key, () -> load(key, id, lockKeyPrefix,
+                value -> {
+                    CacheEntry<R> e = cacheCodec.decode(value, type, false);
+                    return e == null ? null : e.getValue();
+                },
+                () -> {
+                    R r1 = dbFallback.apply(id);
+                    // 不存在写入空值
+                    setBytes(key, encode(r1, CacheEntry.NO_EXPIRE), time, timeUnit);
+                    return r1;
+                }));
+        nearCache.put(key, r);
+
+        // 返回
+        return r;
+    }
+
+    /**
+     * 批量查询, 缓存空值
+     * 一次MGET查询全部key, 未命中的id合并为一次数据库查询, 再通过管道一次写回redis
+     * 不经过本地缓存, 返回的对象均为新反序列化的实例, 调用方可以直接修改
+     * @param dbFallback 批量查询数据库, 例如listByIds
+     * @param idGetter 从查询结果中获取id, 用于和入参对应
+     * @return 按入参顺序排列的结果, 不存在的id被跳过
+     */
+    public <R, ID> List<R> queryManyWithPassThrough(
+            String keyPrefix,
+            Collection<ID> ids,
+            Class<R> type,
+            Function<Collection<ID>, List<R>> dbFallback,
+            Function<R, ID> idGetter,
+            Long time,
+            TimeUnit timeUnit){
+        if (ids == null || ids.isEmpty()) {
+            return Collections.emptyList();
+        }
+        // 1. 去重并通过布隆过滤器拦截不存在的id
+        List<ID> distinctIds = ids.stream()
+                .distinct()
+                .filter(id -> bloomFilterRegistry.mightContain(keyPrefix, id))
+                .collect(Collectors.toList());
+        if (distinctIds.isEmpty()) {
+            return Collections.emptyList();
+        }
+        Map<ID, R> found = new HashMap<>(distinctIds.size() * 2);
+
+        // 2. 一次查询redis
+        List<String> keys = distinctIds.stream().map(id -> keyPrefix + id).collect(Collectors.toList());
+        byte[][] rawKeys = keys.stream().map(this::rawKey).toArray(byte[][]::new);
+        List<byte[]> values = stringRedisTemplate.execute(
+                (RedisCallback<List<byte[]>>) connection -> connection.stringCommands().mGet(rawKeys));
+
+        // 3. 区分命中、空值和未命中
+        List<ID> missIds = new ArrayList<>();
+        for (int i = 0; i < distinctIds.size(); i++) {
+            byte[] bytes = values == null ? null : values.get(i);
+            if (bytes != null && bytes.length == 0) {
+                continue;
+            }
+            CacheEntry<R> entry = bytes == null ? null : cacheCodec.decode(bytes, type, false);
+            if (entry != null) {
+                found.put(distinctIds.get(i), entry.getValue());
+            } else {
+                // 未命中或格式无法解析
+                missIds.add(distinctIds.get(i));
+            }
+        }
+
+        // 4. 未命中的id一次查询数据库, 并通过管道写回redis
+        if (!missIds.isEmpty()) {
+            Map<ID, R> loaded = new HashMap<>(missIds.size() * 2);
+            for (R r : dbFallback.apply(missIds)) {
+                loaded.put(idGetter.apply(r), r);
+            }
+            found.putAll(loaded);
+            Expiration expiration = Expiration.from(time, timeUnit);
+            stringRedisTemplate.executePipelined((RedisCallback<Object>) connection -> {
+                for (ID id : missIds) {
+                    // 不存在写入空值
+                    connection.stringCommands().set(rawKey(keyPrefix + id), encode(loaded.get(id), CacheEntry.NO_EXPIRE),
+                            expiration, RedisStringCommands.SetOption.upsert());
+                }
+                return null;
+            });
+        }
+
+        // 5. 按入参顺序返回
+        List<R> result = new ArrayList<>(ids.size());
+        for (ID id : ids) {
+            R r = found.get(id);
+            if (r != null) {
+                result.add(r);
+            }
+        }
+        return result;
+    }
+
+    /**
+     * 未命中时加载数据
+     * @param lockKeyPrefix 不为空时先获取redis锁, 获取失败说明其他节点正在加载, 等待后重新查询redis
+     * @param parser 解析redis中的数据, 格式不正确时返回null并继续等待
+     * @param loader 查询数据库并写入redis
+     */
+    private <R, ID> R load(
+            String key,
+            ID id,
+            String lockKeyPrefix,
+            Function<byte[], R> parser,
+            Supplier<R> loader){
+        String lockToken = null;
+        String lockKey = lockKeyPrefix + id;
+        if (lockKeyPrefix != null) {
+            // 1. 获取分布式锁, 失败说明其他节点正在查询, 等待后重新查询redis
+            for (int i = 0; i < LOCK_WAIT_RETRIES; i++) {
+                lockToken = tryLock(lockKey);
+                if (lockToken != null) {
+                    break;
+                }
+                ThreadUtil.sleep(LOCK_WAIT_INTERVAL);
+                byte[] bytes = getBytes(key);
+                if (bytes != null && bytes.length == 0) {
+                    return null;
+                }
+                R r = bytes != null ? parser.apply(bytes) : null;
+                if (r != null) {
+                    return r;
+                }
+            }
+            // 多次重试仍未获取到锁, 直接查询数据库
+        }
+
+        try {
+            // 2. 查询数据库并写入redis
+            return loader.get();
+        } finally {
+            if (lockToken != null) {
+                unlock(lockKey, lockToken);
+            }
+        }
+    }
+
+    // 获取锁, 值为本次获取的token, 获取失败返回null
+    private String tryLock(String key){
+        String token = IdUtil.fastSimpleUUID();
+        Boolean flag = stringRedisTemplate.opsForValue().setIfAbsent(key, token, LOCK_SHOP_TTL, TimeUnit.SECONDS);
+        return BooleanUtil.isTrue(flag) ? token : null;
+    }
+
+    // 释放锁, 查询数据库超过锁的过期时间后, 锁可能已被其他节点获取, 只删除token相同的锁
+    private void unlock(String key, String token){
+        stringRedisTemplate.execute(UNLOCK_SCRIPT, Collections.singletonList(key), token);
+    }
+
+    // 逻辑过期解决缓存击穿
+    public <R, ID> R queryWithLogicExpire(
+            String keyPrefix,
+            ID id,
+            Class<R> type,
+            Function<ID, R> dbFallback,
+            Long time,
+            TimeUnit timeUnit){
+        return queryWithLogicExpire(keyPrefix, id, type, dbFallback, LOCK_SHOP_KEY, time, null, timeUnit);
+    }
+
+    /**
+     * 逻辑过期(stale-while-revalidate)
+     * 软过期前直接返回, 临近软过期时按概率提前刷新; 软过期后返回旧数据并异步重建
+     * 超过硬过期时间redis中的数据被删除, 此时同步加载
+     * @param lockKeyPrefix 重建和同步加载使用的redis锁前缀
+     * @param softTime 逻辑过期时间
+     * @param hardTime redis中数据的实际过期时间, 为空则不过期
+     */
+    @SuppressWarnings("unchecked")
+    public <R, ID> R queryWithLogicExpire(
+            String keyPrefix,
+            ID id,
+            Class<R> type,
+            Function<ID, R> dbFallback,
+            String lockKeyPrefix,
+            Long softTime,
+            Long hardTime,
+            TimeUnit timeUnit){
+        String key = keyPrefix + id;
+        CacheEntry<R> entry;
+        // 1. 查询本地缓存, 本地缓存中保存的是已经解码的CacheEntry
+        Object local = nearCache.get(keyPrefix, key);
+        if (local == NearCache.NULL_VALUE) {
+            return null;
+        }
+        if (local instanceof CacheEntry && type.isInstance(((CacheEntry<?>) local).getValue())) {
+            entry = (CacheEntry<R>) local;
+        } else {
+            // 2. 布隆过滤器判断id是否存在, 不存在直接返回
+            if (!bloomFilterRegistry.mightContain(keyPrefix, id)) {
+                return null;
+            }
+
+            // 3. 查询redis
+            byte[] bytes = getBytes(key);
+
+            // 4. 判断值是否为空
+            if (bytes != null && bytes.length == 0) {
+                nearCache.put(key, null);
+                return null;
+            }
+
+            // 5. 存在进行解码
+            entry = bytes == null ? null : cacheCodec.decode(bytes, type, true);
+
+            // 6. 不存在(已超过硬过期时间)或格式不正确, 同步加载
+            if (entry == null) {
+                R r = singleFlight.execute(key, () -> load(key, id, lockKeyPrefix,
+                        value -> {
+                            CacheEntry<R> e = cacheCodec.decode(value, type, true);
+                            return e == null ? null : e.getValue();
+                        },
+                        () -> {
+                            R r1 = dbFallback.apply(id);
+                            writeWithLogicExpire(key, r1, softTime, hardTime, timeUnit);
+                            return r1;
+                        }));
+                return r;
+            }
+
+            nearCache.put(key, entry);
+        }
+        R r = entry.getValue();
+
+        // 7. 判断是否需要刷新: 已过期, 或临近过期时按概率提前刷新
+        if (!shouldRefresh(keyPrefix, entry.getExpireAt())) {
+            return r;
+        }
+
+        // 8. 提交重建任务, 同一个key本节点只提交一次, 多个节点之间通过redis锁去重
+        String lockKey = lockKeyPrefix + id;
+        cacheRebuildExecutor.submit(keyPrefix, key, () -> {
+            String lockToken = tryLock(lockKey);
+            if (lockToken == null) {
+                return;
+            }
+            try {
+                // 重建缓存
+                R r1 = dbFallback.apply(id);
+                writeWithLogicExpire(key, r1, softTime, hardTime, timeUnit);
+            } finally {
+                // 释放锁
+                unlock(lockKey, lockToken);
+            }
+        });
+        // 返回旧数据
+        return r;
+    }
+
+    // 写入逻辑过期数据, 数据库中不存在时写入空值
+    private void writeWithLogicExpire(String key, Object value, Long softTime, Long hardTime, TimeUnit timeUnit){
+        if (value == null) {
+            setBytes(key, new byte[0], CACHE_NULL_TTL, TimeUnit.MINUTES);
+            nearCache.invalidate(key);
+            return;
+        }
+        setWithLogicExpire(key, value, softTime, hardTime, timeUnit);
+    }
+
+    // 编码, 数据库中不存在时编码为空值
+    private byte[] encode(Object value, long expireAt){
+        return value == null ? new byte[0] : cacheCodec.encode(value, expireAt);
+    }
+
+    private byte[] rawKey(String key){
+        return key.getBytes(StandardCharsets.UTF_8);
+    }
+
+    private byte[] getBytes(String key){
+        return stringRedisTemplate.execute((RedisCallback<byte[]>) connection -> connection.stringCommands().get(rawKey(key)));
+    }
+
+    // time为空时不过期
+    private void setBytes(String key, byte[] value, Long time, TimeUnit timeUnit){
+        Expiration expiration = time == null ? Expiration.persistent() : Expiration.from(time, timeUnit);
+        stringRedisTemplate.execute((RedisCallback<Boolean>) connection -> connection.stringCommands()
+                .set(rawKey(key), value, expiration, RedisStringCommands.SetOption.upsert()));
+    }
+
+    /**
+     * 概率提前刷新(XFetch): 剩余时间 <= 平均重建耗时 * beta * -ln(random) 时刷新
+     * 越接近过期、重建越慢, 刷新概率越高, 热点key会在过期前被某个请求提前刷新
+     */
+    private boolean shouldRefresh(String keyPrefix, long expireAt){
+        long remaining = expireAt - System.currentTimeMillis();
+        if (remaining <= 0) {
+            return true;
+        }
+        double delta = Math.max(1D, cacheRebuildExecutor.avgRebuildMillis(keyPrefix));
+        double random = ThreadLocalRandom.current().nextDouble();
+        return -delta * CACHE_REFRESH_BETA * Math.log(random) >= remaining;
+    }
+}
@@ -0,0 +1,21 @@
+package com.hmdp.utils;
+
+/**
+ * 缓存数据的编解码
+ */
+public interface CacheCodec {
+
+    /**
+     * 编码
+     * @param value 数据
+     * @param expireAt 逻辑过期时间(毫秒时间戳), CacheEntry.NO_EXPIRE表示不使用逻辑过期
+     */
+    byte[] encode(Object value, long expireAt);
+
+    /**
+     * 解码
+     * @param withExpire 数据是否包含逻辑过期时间
+     * @return 无法解析时返回null, 调用方按未命中处理
+     */
+    <R> CacheEntry<R> decode(byte[] bytes, Class<R> type, boolean withExpire);
+}
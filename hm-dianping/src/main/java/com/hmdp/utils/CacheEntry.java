@@ -0,0 +1,20 @@
+package com.hmdp.utils;
+
+import lombok.AllArgsConstructor;
+import lombok.Getter;
+
+/**
+ * 缓存中解析出的数据
+ */
+@Getter
+@AllArgsConstructor
+public class CacheEntry<R> {
+
+    // 没有逻辑过期时间
+    public static final long NO_EXPIRE = -1L;
+
+    private final R value;
+
+    // 逻辑过期时间, 毫秒时间戳
+    private final long expireAt;
+}
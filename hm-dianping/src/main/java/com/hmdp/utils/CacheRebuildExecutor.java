@@ -0,0 +1,131 @@
+package com.hmdp.utils;
+
+import cn.hutool.core.thread.ThreadFactoryBuilder;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.stereotype.Component;
+
+import javax.annotation.PreDestroy;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.LongAdder;
+
+import static com.hmdp.utils.SystemConstants.*;
+
+/**
+ * 逻辑过期缓存的重建线程池
+ * 队列有界, 队列满时拒绝任务, 调用方继续返回旧数据
+ * 同一个key在本节点同时只有一个重建任务, 同一个key前缀同时最多CACHE_REBUILD_PERMITS个任务
+ */
+@Slf4j
+@Component
+public class CacheRebuildExecutor {
+
+    private final ThreadPoolExecutor executor = new ThreadPoolExecutor(
+            CACHE_REBUILD_CORE_SIZE,
+            CACHE_REBUILD_MAX_SIZE,
+            60L, TimeUnit.SECONDS,
+            new ArrayBlockingQueue<>(CACHE_REBUILD_QUEUE_CAPACITY),
+            new ThreadFactoryBuilder().setNamePrefix("cache-rebuild-").setDaemon(true).build(),
+            new ThreadPoolExecutor.AbortPolicy());
+
+    // 本节点正在重建的key
+    private final Set<String> inFlight = ConcurrentHashMap.newKeySet();
+
+    private final Map<String, PrefixStats> stats = new ConcurrentHashMap<>();
+
+    /**
+     * 提交重建任务
+     * @return 是否提交成功, 已在重建、超出前缀并发数或队列已满时返回false
+     */
+    public boolean submit(String keyPrefix, String key, Runnable task) {
+        PrefixStats prefixStats = stats(keyPrefix);
+        // 1. 本节点已在重建
+        if (!inFlight.add(key)) {
+            return false;
+        }
+        // 2. 超出前缀并发限制
+        if (!prefixStats.permits.tryAcquire()) {
+            inFlight.remove(key);
+            prefixStats.throttled.increment();
+            return false;
+        }
+        // 3. 提交到线程池
+        try {
+            executor.execute(() -> {
+                long begin = System.nanoTime();
+                try {
+                    task.run();
+                    prefixStats.success.increment();
+                } catch (Exception e) {
+                    prefixStats.failure.increment();
+                    log.error("缓存重建失败, key:{}", key, e);
+                } finally {
+                    prefixStats.latency.record(System.nanoTime() - begin);
+                    prefixStats.permits.release();
+                    inFlight.remove(key);
+                }
+            });
+            prefixStats.submitted.increment();
+            return true;
+        } catch (RejectedExecutionException e) {
+            prefixStats.permits.release();
+            inFlight.remove(key);
+            prefixStats.rejected.increment();
+            log.warn("缓存重建队列已满, 丢弃重建任务, key:{}", key);
+            return false;
+        }
+    }
+
+    /**
+     * 前缀的平均重建耗时, 用于提前刷新的概率计算
+     */
+    public double avgRebuildMillis(String keyPrefix) {
+        return stats(keyPrefix).latency.avgMillis();
+    }
+
+    private PrefixStats stats(String keyPrefix) {
+        return stats.computeIfAbsent(keyPrefix, k -> new PrefixStats());
+    }
+
+    public Map<String, Object> stats() {
+        Map<String, Object> result = new LinkedHashMap<>();
+        result.put("queueDepth", executor.getQueue().size());
+        result.put("queueCapacity", CACHE_REBUILD_QUEUE_CAPACITY);
+        result.put("activeCount", executor.getActiveCount());
+        result.put("poolSize", executor.getPoolSize());
+        stats.forEach((keyPrefix, prefixStats) -> {
+            Map<String, Object> item = new LinkedHashMap<>();
+            item.put("submitted", prefixStats.submitted.sum());
+            item.put("success", prefixStats.success.sum());
+            item.put("failure", prefixStats.failure.sum());
+            item.put("rejected", prefixStats.rejected.sum());
+            item.put("throttled", prefixStats.throttled.sum());
+            item.put("running", CACHE_REBUILD_PERMITS - prefixStats.permits.availablePermits());
+            item.put("latency", prefixStats.latency.toMap());
+            result.put(keyPrefix, item);
+        });
+        return result;
+    }
+
+    @PreDestroy
+    private void destroy() {
+        executor.shutdown();
+    }
+
+    private static class PrefixStats {
+        private final Semaphore permits = new Semaphore(CACHE_REBUILD_PERMITS);
+        private final LongAdder submitted = new LongAdder();
+        private final LongAdder success = new LongAdder();
+        private final LongAdder failure = new LongAdder();
+        private final LongAdder rejected = new LongAdder();
+        private final LongAdder throttled = new LongAdder();
+        private final LatencyRecorder latency = new LatencyRecorder();
+    }
+}
@@ -0,0 +1,214 @@
+package com.hmdp.utils;
+
+import cn.hutool.json.JSONUtil;
+import com.baomidou.mybatisplus.core.conditions.query.QueryWrapper;
+import com.hmdp.entity.SeckillVoucher;
+import com.hmdp.entity.Shop;
+import com.hmdp.entity.ShopType;
+import com.hmdp.entity.VoucherOrder;
+import com.hmdp.mapper.SeckillVoucherMapper;
+import com.hmdp.mapper.ShopMapper;
+import com.hmdp.mapper.ShopTypeMapper;
+import com.hmdp.mapper.VoucherOrderMapper;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.ApplicationArguments;
+import org.springframework.boot.ApplicationRunner;
+import org.springframework.data.redis.connection.RedisStringCommands;
+import org.springframework.data.redis.core.RedisCallback;
+import org.springframework.data.redis.core.StringRedisTemplate;
+import org.springframework.data.redis.core.types.Expiration;
+import org.springframework.stereotype.Component;
+
+import javax.annotation.Resource;
+import java.nio.charset.StandardCharsets;
+import java.time.LocalDateTime;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+
+import static com.hmdp.utils.RedisConstants.*;
+import static com.hmdp.utils.SystemConstants.CACHE_WARMUP_BATCH_SIZE;
+import static com.hmdp.utils.SystemConstants.SECKILL_STOCK_BUCKETS;
+
+/**
+ * 启动时预热缓存, 避免部署或redis清空后第一波请求全部落到数据库
+ * 分页读取店铺、店铺类型和未结束的秒杀券, 通过管道批量写入redis
+ * 在ApplicationRunner中同步执行, spring在所有runner执行完后才将就绪状态置为ACCEPTING_TRAFFIC
+ */
+@Slf4j
+@Component
+public class CacheWarmer implements ApplicationRunner {
+
+    @Resource
+    private ShopMapper shopMapper;
+
+    @Resource
+    private ShopTypeMapper shopTypeMapper;
+
+    @Resource
+    private SeckillVoucherMapper seckillVoucherMapper;
+
+    @Resource
+    private VoucherOrderMapper voucherOrderMapper;
+
+    @Resource
+    private StringRedisTemplate stringRedisTemplate;
+
+    @Resource
+    private CacheCodec cacheCodec;
+
+    @Value("${hmdp.warmup.enabled:true}")
+    private boolean enabled;
+
+    // 各阶段的预热结果
+    private final Map<String, Object> stats = new LinkedHashMap<>();
+
+    @Override
+    public void run(ApplicationArguments args) {
+        if (!enabled) {
+            return;
+        }
+        long begin = System.currentTimeMillis();
+        warm("shop", this::warmShops);
+        warm("shopType", this::warmShopTypes);
+        warm("seckill", this::warmSeckillVouchers);
+        log.info("缓存预热完成, 耗时:{}ms", System.currentTimeMillis() - begin);
+    }
+
+    // 单个阶段失败只记录日志, 不影响应用启动
+    private void warm(String name, WarmTask task) {
+        long begin = System.currentTimeMillis();
+        Map<String, Object> item = new LinkedHashMap<>();
+        try {
+            long count = task.run();
+            item.put("count", count);
+            item.put("success", true);
+        } catch (Exception e) {
+            item.put("success", false);
+            log.error("缓存预热失败, 阶段:{}", name, e);
+        }
+        item.put("costMillis", System.currentTimeMillis() - begin);
+        synchronized (stats) {
+            stats.put(name, item);
+        }
+    }
+
+    private long warmShops() {
+        long lastId = 0;
+        long count = 0;
+        Expiration expiration = Expiration.from(CACHE_SHOP_HARD_TTL, TimeUnit.MINUTES);
+        long softMillis = TimeUnit.MINUTES.toMillis(CACHE_SHOP_TTL);
+        while (true) {
+            // 1. 按id分页查询
+            List<Shop> shops = shopMapper.selectList(new QueryWrapper<Shop>()
+                    .gt("id", lastId).orderByAsc("id").last("LIMIT " + CACHE_WARMUP_BATCH_SIZE));
+            if (shops.isEmpty()) {
+                break;
+            }
+            // 2. 管道批量写入逻辑过期数据, 逻辑过期时间加入随机偏移, 避免同时过期
+            long now = System.currentTimeMillis();
+            stringRedisTemplate.executePipelined((RedisCallback<Object>) connection -> {
+                for (Shop shop : shops) {
+                    long expireAt = now + softMillis + ThreadLocalRandom.current().nextLong(softMillis / 10 + 1);
+                    connection.stringCommands().set(rawKey(CACHE_SHOP_KEY + shop.getId()),
+                            cacheCodec.encode(shop, expireAt), expiration, RedisStringCommands.SetOption.upsert());
+                }
+                return null;
+            });
+            count += shops.size();
+            lastId = shops.get(shops.size() - 1).getId();
+            log.info("店铺缓存预热中, 已完成:{}", count);
+        }
+        return count;
+    }
+
+    private long warmShopTypes() {
+        // 与ShopTypeServiceImpl#queryTypeList的格式一致
+        List<ShopType> typeList = shopTypeMapper.selectList(new QueryWrapper<ShopType>().orderByAsc("sort"));
+        stringRedisTemplate.opsForValue().set(CACHE_TYPE_KEY, JSONUtil.toJsonStr(typeList));
+        return typeList.size();
+    }
+
+    private long warmSeckillVouchers() {
+        long lastId = 0;
+        long count = 0;
+        while (true) {
+            // 1. 分页查询未结束的秒杀券
+            List<SeckillVoucher> vouchers = seckillVoucherMapper.selectList(new QueryWrapper<SeckillVoucher>()
+                    .gt("voucher_id", lastId).gt("end_time", LocalDateTime.now())
+                    .orderByAsc("voucher_id").last("LIMIT " + CACHE_WARMUP_BATCH_SIZE));
+            if (vouchers.isEmpty()) {
+                break;
+            }
+            // 2. 库存已存在说明秒杀正在进行, 不能覆盖, 只写入不存在的库存, 数据库中的剩余库存平均拆分到各个桶
+            List<Object> results = stringRedisTemplate.executePipelined((RedisCallback<Object>) connection -> {
+                for (SeckillVoucher voucher : vouchers) {
+                    int[] stocks = SeckillBuckets.split(voucher.getStock());
+                    for (int bucket = 0; bucket < stocks.length; bucket++) {
+                        connection.stringCommands().setNX(rawKey(SeckillBuckets.stockKey(voucher.getVoucherId(), bucket)),
+                                rawKey(String.valueOf(stocks[bucket])));
+                    }
+                }
+                return null;
+            });
+            // 秒杀时间可以直接覆盖
+            stringRedisTemplate.executePipelined((RedisCallback<Object>) connection -> {
+                for (SeckillVoucher voucher : vouchers) {
+                    Map<byte[], byte[]> fields = new HashMap<>(4);
+                    SeckillBuckets.timeFields(voucher.getBeginTime(), voucher.getEndTime())
+                            .forEach((field, value) -> fields.put(rawKey(field), rawKey(value)));
+                    for (int bucket = 0; bucket < SECKILL_STOCK_BUCKETS; bucket++) {
+                        connection.hashCommands().hMSet(rawKey(SeckillBuckets.timeKey(voucher.getVoucherId(), bucket)), fields);
+                    }
+                }
+                return null;
+            });
+            // 3. 新写入库存的秒杀券(以0号桶为准), 从数据库恢复已下单用户, 保证一人一单
+            for (int i = 0; i < vouchers.size(); i++) {
+                if (Boolean.TRUE.equals(results.get(i * SECKILL_STOCK_BUCKETS))) {
+                    restoreOrderUsers(vouchers.get(i).getVoucherId());
+                }
+            }
+            count += vouchers.size();
+            lastId = vouchers.get(vouchers.size() - 1).getVoucherId();
+            log.info("秒杀库存预热中, 已完成:{}", count);
+        }
+        return count;
+    }
+
+    private void restoreOrderUsers(Long voucherId) {
+        List<Object> userIds = voucherOrderMapper.selectObjs(new QueryWrapper<VoucherOrder>()
+                .select("user_id").eq("voucher_id", voucherId));
+        if (userIds.isEmpty()) {
+            return;
+        }
+        // 按用户的主桶写入
+        stringRedisTemplate.executePipelined((RedisCallback<Object>) connection -> {
+            for (Object userId : userIds) {
+                Long id = Long.valueOf(userId.toString());
+                connection.setCommands().sAdd(rawKey(SeckillBuckets.orderKey(voucherId, SeckillBuckets.homeBucket(id))),
+                        rawKey(id.toString()));
+            }
+            return null;
+        });
+    }
+
+    private byte[] rawKey(String key) {
+        return key.getBytes(StandardCharsets.UTF_8);
+    }
+
+    public Map<String, Object> stats() {
+        synchronized (stats) {
+            return new LinkedHashMap<>(stats);
+        }
+    }
+
+    @FunctionalInterface
+    private interface WarmTask {
+        long run();
+    }
+}
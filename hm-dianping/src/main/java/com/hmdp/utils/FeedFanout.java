@@ -0,0 +1,154 @@
+package com.hmdp.utils;
+
+import cn.hutool.core.thread.ThreadFactoryBuilder;
+import com.baomidou.mybatisplus.core.conditions.query.QueryWrapper;
+import com.hmdp.entity.Follow;
+import com.hmdp.mapper.FollowMapper;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.data.redis.connection.RedisZSetCommands;
+import org.springframework.data.redis.core.RedisCallback;
+import org.springframework.data.redis.core.StringRedisTemplate;
+import org.springframework.stereotype.Component;
+
+import javax.annotation.PreDestroy;
+import javax.annotation.Resource;
+import java.nio.charset.StandardCharsets;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.LongAdder;
+
+import static com.hmdp.utils.RedisConstants.FEED_KEY;
+import static com.hmdp.utils.SystemConstants.*;
+
+/**
+ * 发布博客后异步推送到所有粉丝的收件箱
+ * 按tb_follow的id游标分页查询粉丝, 每batch-size个粉丝一次管道写入, 写入的同时将收件箱裁剪到inbox-max条
+ * 队列满时由发布博客的线程执行, 不丢弃推送
+ */
+@Slf4j
+@Component
+public class FeedFanout {
+
+    private final ThreadPoolExecutor executor = new ThreadPoolExecutor(
+            FEED_FANOUT_CORE_SIZE,
+            FEED_FANOUT_CORE_SIZE,
+            0L, TimeUnit.MILLISECONDS,
+            new ArrayBlockingQueue<>(FEED_FANOUT_QUEUE_CAPACITY),
+            new ThreadFactoryBuilder().setNamePrefix("feed-fanout-").build(),
+            new ThreadPoolExecutor.CallerRunsPolicy());
+
+    @Value("${hmdp.feed.batch-size:500}")
+    private int batchSize;
+
+    @Value("${hmdp.feed.inbox-max:1000}")
+    private int inboxMax;
+
+    @Resource
+    private StringRedisTemplate stringRedisTemplate;
+
+    @Resource
+    private FollowMapper followMapper;
+
+    private final LongAdder submitted = new LongAdder();
+    private final LongAdder completed = new LongAdder();
+    private final LongAdder failed = new LongAdder();
+    private final LongAdder pushed = new LongAdder();
+    // 提交到推送完成, 包含排队时间
+    private final LatencyRecorder fanoutLatency = new LatencyRecorder();
+    // 每次管道写入
+    private final LatencyRecorder batchLatency = new LatencyRecorder();
+
+    /**
+     * 提交推送任务
+     * @param timestamp 博客的发布时间, 作为收件箱中的分数
+     */
+    public void submit(Long authorId, Long blogId, long timestamp) {
+        submitted.increment();
+        long begin = System.nanoTime();
+        executor.execute(() -> {
+            try {
+                long count = fanout(authorId, blogId.toString(), timestamp);
+                completed.increment();
+                log.debug("博客推送完成, blogId:{}, 粉丝数:{}", blogId, count);
+            } catch (Exception e) {
+                failed.increment();
+                log.error("博客推送失败, authorId:{}, blogId:{}", authorId, blogId, e);
+            } finally {
+                fanoutLatency.record(System.nanoTime() - begin);
+            }
+        });
+    }
+
+    private long fanout(Long authorId, String blogId, long timestamp) {
+        long lastId = 0;
+        long count = 0;
+        while (true) {
+            // 1. 按id游标查询一页粉丝, 不使用offset
+            List<Follow> follows = followMapper.selectList(new QueryWrapper<Follow>()
+                    .select("id", "user_id")
+                    .eq("follow_user_id", authorId)
+                    .gt("id", lastId)
+                    .orderByAsc("id")
+                    .last("LIMIT " + FEED_FANOUT_PAGE_SIZE));
+            if (follows.isEmpty()) {
+                return count;
+            }
+            // 2. 分批通过管道写入收件箱
+            for (int from = 0; from < follows.size(); from += batchSize) {
+                push(follows.subList(from, Math.min(from + batchSize, follows.size())), blogId, timestamp);
+            }
+            count += follows.size();
+            lastId = follows.get(follows.size() - 1).getId();
+            if (follows.size() < FEED_FANOUT_PAGE_SIZE) {
+                return count;
+            }
+        }
+    }
+
+    // 写入收件箱并只保留最新的inboxMax条 zadd feed:{userId} timestamp blogId; zremrangebyrank feed:{userId} 0 -(inboxMax+1)
+    private void push(List<Follow> follows, String blogId, long timestamp) {
+        long begin = System.nanoTime();
+        byte[] member = blogId.getBytes(StandardCharsets.UTF_8);
+        stringRedisTemplate.executePipelined((RedisCallback<Object>) connection -> {
+            RedisZSetCommands zSetCommands = connection.zSetCommands();
+            for (Follow follow : follows) {
+                byte[] key = (FEED_KEY + follow.getUserId()).getBytes(StandardCharsets.UTF_8);
+                zSetCommands.zAdd(key, timestamp, member);
+                zSetCommands.zRemRange(key, 0, -(inboxMax + 1));
+            }
+            return null;
+        });
+        batchLatency.record(System.nanoTime() - begin);
+        pushed.add(follows.size());
+    }
+
+    public Map<String, Object> stats() {
+        Map<String, Object> result = new LinkedHashMap<>();
+        result.put("queueDepth", executor.getQueue().size());
+        result.put("queueCapacity", FEED_FANOUT_QUEUE_CAPACITY);
+        result.put("activeCount", executor.getActiveCount());
+        result.put("batchSize", batchSize);
+        result.put("inboxMax", inboxMax);
+        result.put("submitted", submitted.sum());
+        result.put("completed", completed.sum());
+        result.put("failed", failed.sum());
+        result.put("pushed", pushed.sum());
+        result.put("fanoutLatency", fanoutLatency.toMap());
+        result.put("batchLatency", batchLatency.toMap());
+        return result;
+    }
+
+    // 停止接收新任务, 等待已提交的推送完成
+    @PreDestroy
+    private void destroy() throws InterruptedException {
+        executor.shutdown();
+        if (!executor.awaitTermination(FEED_FANOUT_SHUTDOWN_TIMEOUT, TimeUnit.MILLISECONDS)) {
+            log.warn("博客推送未完成, 剩余任务数:{}", executor.getQueue().size());
+        }
+    }
+}
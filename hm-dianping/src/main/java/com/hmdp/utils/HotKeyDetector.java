@@ -0,0 +1,165 @@
+package com.hmdp.utils;
+
+import cn.hutool.core.lang.hash.MurmurHash;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.atomic.AtomicLongArray;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.function.Consumer;
+
+import static com.hmdp.utils.SystemConstants.*;
+
+/**
+ * 本节点的热点key探测
+ * 滑动窗口由HOT_KEY_WINDOW_BUCKETS个时间片组成, 每个时间片是一个count-min sketch, 另维护一份窗口内的累计值
+ * 窗口内访问次数达到阈值的key晋升为热点, 低于阈值一半时降级, 降级时通知监听者清除本地副本
+ */
+@Slf4j
+@Component
+public class HotKeyDetector {
+
+    private static final int DEPTH = 4;
+
+    // 每个时间片的计数, 按行展开为一维数组
+    private final AtomicLongArray[] buckets = new AtomicLongArray[HOT_KEY_WINDOW_BUCKETS];
+
+    // 窗口内各时间片之和, 查询时不需要遍历所有时间片
+    private final AtomicLongArray window = new AtomicLongArray(DEPTH * HOT_KEY_SKETCH_WIDTH);
+
+    private volatile int current;
+
+    // 热点key -> 最近一次估算的访问次数
+    private final Map<String, Long> hotKeys = new ConcurrentHashMap<>();
+
+    private final List<Consumer<String>> demoteListeners = new CopyOnWriteArrayList<>();
+
+    private final LongAdder promoted = new LongAdder();
+    private final LongAdder demoted = new LongAdder();
+
+    // 窗口内的访问次数阈值
+    @Value("${hmdp.hot-key.threshold:500}")
+    private long threshold;
+
+    public HotKeyDetector() {
+        for (int i = 0; i < buckets.length; i++) {
+            buckets[i] = new AtomicLongArray(DEPTH * HOT_KEY_SKETCH_WIDTH);
+        }
+    }
+
+    /**
+     * 记录一次访问
+     * @return 该key当前是否为热点
+     */
+    public boolean record(String key) {
+        int[] indexes = indexes(key);
+        AtomicLongArray bucket = buckets[current];
+        long estimate = Long.MAX_VALUE;
+        for (int index : indexes) {
+            bucket.incrementAndGet(index);
+            estimate = Math.min(estimate, window.incrementAndGet(index));
+        }
+        if (hotKeys.containsKey(key)) {
+            return true;
+        }
+        if (estimate >= threshold && hotKeys.size() < HOT_KEY_MAX_SIZE && hotKeys.putIfAbsent(key, estimate) == null) {
+            promoted.increment();
+            log.info("热点key晋升, key:{}, 访问次数:{}", key, estimate);
+            return true;
+        }
+        return false;
+    }
+
+    public boolean isHot(String key) {
+        return hotKeys.containsKey(key);
+    }
+
+    // 注册降级监听, 用于清除本地副本
+    public void onDemote(Consumer<String> listener) {
+        demoteListeners.add(listener);
+    }
+
+    /**
+     * 滑动窗口前进一个时间片, 并重新评估当前的热点key
+     */
+    @Scheduled(fixedRate = HOT_KEY_BUCKET_MILLIS)
+    public void tick() {
+        // 1. 最旧的时间片移出窗口
+        int next = (current + 1) % buckets.length;
+        AtomicLongArray oldest = buckets[next];
+        for (int i = 0; i < oldest.length(); i++) {
+            long count = oldest.getAndSet(i, 0);
+            if (count != 0) {
+                window.addAndGet(i, -count);
+            }
+        }
+        current = next;
+
+        // 2. 访问次数低于阈值一半的热点降级, 避免在阈值附近反复晋升降级
+        for (String key : hotKeys.keySet()) {
+            long estimate = estimate(key);
+            if (estimate >= threshold / 2) {
+                hotKeys.put(key, estimate);
+                continue;
+            }
+            hotKeys.remove(key);
+            demoted.increment();
+            log.info("热点key降级, key:{}, 访问次数:{}", key, estimate);
+            for (Consumer<String> listener : demoteListeners) {
+                listener.accept(key);
+            }
+        }
+    }
+
+    private long estimate(String key) {
+        long estimate = Long.MAX_VALUE;
+        for (int index : indexes(key)) {
+            estimate = Math.min(estimate, window.get(index));
+        }
+        return estimate;
+    }
+
+    // 双重哈希计算每一行的下标
+    private int[] indexes(String key) {
+        long[] hash = MurmurHash.hash128(key);
+        int[] indexes = new int[DEPTH];
+        for (int i = 0; i < DEPTH; i++) {
+            indexes[i] = i * HOT_KEY_SKETCH_WIDTH + (int) Math.floorMod(hash[0] + i * hash[1], (long) HOT_KEY_SKETCH_WIDTH);
+        }
+        return indexes;
+    }
+
+    /**
+     * 当前热点key, 按访问次数降序
+     */
+    public List<Map<String, Object>> hotKeys() {
+        List<Map<String, Object>> list = new ArrayList<>(hotKeys.size());
+        hotKeys.entrySet().stream()
+                .sorted(Map.Entry.<String, Long>comparingByValue().reversed())
+                .forEach(entry -> {
+                    Map<String, Object> item = new LinkedHashMap<>();
+                    item.put("key", entry.getKey());
+                    item.put("count", entry.getValue());
+                    list.add(item);
+                });
+        return list;
+    }
+
+    public Map<String, Object> stats() {
+        Map<String, Object> stats = new LinkedHashMap<>();
+        stats.put("threshold", threshold);
+        stats.put("windowMillis", HOT_KEY_BUCKET_MILLIS * HOT_KEY_WINDOW_BUCKETS);
+        stats.put("promoted", promoted.sum());
+        stats.put("demoted", demoted.sum());
+        stats.put("hotKeys", hotKeys());
+        return stats;
+    }
+}
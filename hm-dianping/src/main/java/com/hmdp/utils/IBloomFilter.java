@@ -0,0 +1,16 @@
+package com.hmdp.utils;
+
+import java.util.Collection;
+
+public interface IBloomFilter {
+
+    void add(Object id);
+
+    void addAll(Collection<?> ids);
+
+    /**
+     * 判断id是否可能存在
+     * @return false:一定不存在, true:可能存在
+     */
+    boolean mightContain(Object id);
+}
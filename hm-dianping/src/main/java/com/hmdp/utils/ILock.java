@@ -0,0 +1,35 @@
+package com.hmdp.utils;
+
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.TimeUnit;
+
+public interface ILock {
+
+    /**
+     * 尝试获取锁, 不等待
+     * @param timeoutSec 锁的有效期, 到期自动释放
+     */
+    boolean tryLock(long timeoutSec);
+
+    /**
+     * 尝试获取锁, 不等待, 持有期间由看门狗自动续期
+     */
+    boolean tryLock();
+
+    /**
+     * 在waitTime内等待获取锁, 锁被释放时通过redis频道唤醒, 不轮询
+     * @param leaseTime 锁的有效期, 为-1时由看门狗自动续期直到unlock
+     */
+    boolean tryLock(long waitTime, long leaseTime, TimeUnit unit) throws InterruptedException;
+
+    /**
+     * 异步获取锁, 锁归属于调用线程, 由调用线程unlock
+     */
+    CompletableFuture<Boolean> tryLockAsync(long waitTime, long leaseTime, TimeUnit unit);
+
+    /**
+     * 释放锁, 重入时只减少一次持有次数
+     * @throws IllegalMonitorStateException 当前线程未持有锁(或锁已过期)
+     */
+    void unlock();
+}
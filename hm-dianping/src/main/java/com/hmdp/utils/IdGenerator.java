@@ -0,0 +1,13 @@
+package com.hmdp.utils;
+
+/**
+ * 全局唯一id生成
+ */
+public interface IdGenerator {
+
+    long nextId(String keyPrefix);
+
+    // 释放占用的资源, 例如租用的workerId
+    default void close() {
+    }
+}
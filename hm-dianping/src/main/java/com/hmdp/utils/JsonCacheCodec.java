@@ -0,0 +1,47 @@
+package com.hmdp.utils;
+
+import cn.hutool.json.JSONObject;
+import cn.hutool.json.JSONUtil;
+
+import java.nio.charset.StandardCharsets;
+import java.time.Instant;
+import java.time.LocalDateTime;
+import java.time.ZoneId;
+
+/**
+ * JSON格式, 逻辑过期数据使用RedisData包装
+ */
+public class JsonCacheCodec implements CacheCodec {
+
+    @Override
+    public byte[] encode(Object value, long expireAt) {
+        if (expireAt == CacheEntry.NO_EXPIRE) {
+            return JSONUtil.toJsonStr(value).getBytes(StandardCharsets.UTF_8);
+        }
+        RedisData redisData = new RedisData();
+        redisData.setData(value);
+        redisData.setExpireTime(LocalDateTime.ofInstant(Instant.ofEpochMilli(expireAt), ZoneId.systemDefault()));
+        return JSONUtil.toJsonStr(redisData).getBytes(StandardCharsets.UTF_8);
+    }
+
+    @Override
+    public <R> CacheEntry<R> decode(byte[] bytes, Class<R> type, boolean withExpire) {
+        String json = new String(bytes, StandardCharsets.UTF_8);
+        try {
+            if (!withExpire) {
+                return new CacheEntry<>(JSONUtil.toBean(json, type), CacheEntry.NO_EXPIRE);
+            }
+            // 先解析RedisData, 再将其中的JSONObject解析为目标类型
+            RedisData redisData = JSONUtil.toBean(json, RedisData.class);
+            if (redisData.getExpireTime() == null || !(redisData.getData() instanceof JSONObject)) {
+                return null;
+            }
+            R value = JSONUtil.toBean((JSONObject) redisData.getData(), type);
+            long expireAt = redisData.getExpireTime().atZone(ZoneId.systemDefault()).toInstant().toEpochMilli();
+            return new CacheEntry<>(value, expireAt);
+        } catch (RuntimeException e) {
+            // 数据损坏或格式不兼容, hutool抛出JSONException、ConvertException等, 按未命中处理, 由调用方重新查询数据库
+            return null;
+        }
+    }
+}
@@ -0,0 +1,47 @@
+package com.hmdp.utils;
+
+import java.util.Collection;
+import java.util.concurrent.atomic.AtomicLongArray;
+
+/**
+ * 进程内布隆过滤器, 位数组保存在堆内存中, 读写均无锁
+ */
+public class LocalBloomFilter extends AbstractBloomFilter {
+
+    private final AtomicLongArray bits;
+
+    public LocalBloomFilter(long expectedInsertions, double fpp) {
+        super(expectedInsertions, fpp);
+        this.bits = new AtomicLongArray((int) ((numBits + 63) >>> 6));
+    }
+
+    @Override
+    public void add(Object id) {
+        for (long index : indexes(id)) {
+            int i = (int) (index >>> 6);
+            long mask = 1L << index;
+            long old;
+            do {
+                old = bits.get(i);
+                if ((old & mask) != 0) {
+                    break;
+                }
+            } while (!bits.compareAndSet(i, old, old | mask));
+        }
+    }
+
+    @Override
+    public void addAll(Collection<?> ids) {
+        ids.forEach(this::add);
+    }
+
+    @Override
+    public boolean mightContain(Object id) {
+        for (long index : indexes(id)) {
+            if ((bits.get((int) (index >>> 6)) & (1L << index)) == 0) {
+                return false;
+            }
+        }
+        return true;
+    }
+}
@@ -0,0 +1,133 @@
+package com.hmdp.utils;
+
+import cn.hutool.cache.Cache;
+import cn.hutool.cache.CacheUtil;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.data.redis.connection.Message;
+import org.springframework.data.redis.connection.MessageListener;
+import org.springframework.data.redis.core.StringRedisTemplate;
+import org.springframework.stereotype.Component;
+
+import java.nio.charset.StandardCharsets;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.LongAdder;
+
+import static com.hmdp.utils.RedisConstants.CACHE_INVALIDATE_CHANNEL;
+import static com.hmdp.utils.SystemConstants.HOT_KEY_LOCAL_TTL;
+import static com.hmdp.utils.SystemConstants.LOCAL_CACHE_MAX_SIZE;
+import static com.hmdp.utils.SystemConstants.LOCAL_CACHE_TTL;
+
+/**
+ * 进程内一级缓存, 位于redis二级缓存之前
+ * 容量有上限, 超出后按LRU淘汰, 写入后LOCAL_CACHE_TTL毫秒过期
+ * 删除缓存时通过redis频道广播, 所有节点收到后清除本地副本
+ * 热点key额外保存一份不受LRU淘汰影响的副本, 降级后清除
+ */
+@Slf4j
+@Component
+public class NearCache implements MessageListener {
+
+    // 空值占位, 用于缓存数据库中不存在的数据
+    public static final Object NULL_VALUE = new Object();
+
+    private final Cache<String, Object> cache = CacheUtil.newLRUCache(LOCAL_CACHE_MAX_SIZE, LOCAL_CACHE_TTL);
+
+    // 热点key的副本, 数量受HOT_KEY_MAX_SIZE限制
+    private final Cache<String, Object> hotCache = CacheUtil.newTimedCache(HOT_KEY_LOCAL_TTL);
+
+    // 按key前缀统计命中情况
+    private final Map<String, Counter> counters = new ConcurrentHashMap<>();
+
+    private final StringRedisTemplate stringRedisTemplate;
+
+    private final HotKeyDetector hotKeyDetector;
+
+    public NearCache(StringRedisTemplate stringRedisTemplate, HotKeyDetector hotKeyDetector) {
+        this.stringRedisTemplate = stringRedisTemplate;
+        this.hotKeyDetector = hotKeyDetector;
+        hotKeyDetector.onDemote(hotCache::remove);
+    }
+
+    /**
+     * 查询本地缓存, 同时记录一次访问用于热点探测
+     * @param keyPrefix key前缀, 用于统计
+     * @param key 完整的key
+     * @return 未命中返回null, 命中空值返回NULL_VALUE
+     */
+    public Object get(String keyPrefix, String key) {
+        boolean isHot = hotKeyDetector.record(key);
+        Object value = isHot ? hotCache.get(key, false) : null;
+        if (value == null) {
+            value = cache.get(key, false);
+            // 刚晋升的热点, 从LRU中复制副本
+            if (isHot && value != null) {
+                hotCache.put(key, value);
+            }
+        }
+        Counter counter = counters.computeIfAbsent(keyPrefix, k -> new Counter());
+        if (value == null) {
+            counter.miss.increment();
+        } else {
+            counter.hit.increment();
+        }
+        return value;
+    }
+
+    public void put(String key, Object value) {
+        Object v = value == null ? NULL_VALUE : value;
+        cache.put(key, v);
+        putIfHot(key, v);
+    }
+
+    /**
+     * 只在key为热点时写入副本, 用于只需要缓存热点的场景
+     */
+    public void putIfHot(String key, Object value) {
+        if (hotKeyDetector.isHot(key)) {
+            hotCache.put(key, value == null ? NULL_VALUE : value);
+        }
+    }
+
+    // 只清除当前节点
+    public void evict(String key) {
+        cache.remove(key);
+        hotCache.remove(key);
+    }
+
+    // 清除所有节点
+    public void invalidate(String key) {
+        evict(key);
+        stringRedisTemplate.convertAndSend(CACHE_INVALIDATE_CHANNEL, key);
+    }
+
+    @Override
+    public void onMessage(Message message, byte[] pattern) {
+        String key = new String(message.getBody(), StandardCharsets.UTF_8);
+        log.debug("收到缓存失效通知, key:{}", key);
+        evict(key);
+    }
+
+    public Map<String, Object> stats() {
+        Map<String, Object> stats = new LinkedHashMap<>();
+        stats.put("size", cache.size());
+        stats.put("capacity", cache.capacity());
+        stats.put("hotSize", hotCache.size());
+        counters.forEach((prefix, counter) -> {
+            long hit = counter.hit.sum();
+            long miss = counter.miss.sum();
+            Map<String, Object> item = new LinkedHashMap<>();
+            item.put("hit", hit);
+            item.put("miss", miss);
+            item.put("hitRate", hit + miss == 0 ? 0D : (double) hit / (hit + miss));
+            stats.put(prefix, item);
+        });
+        return stats;
+    }
+
+    private static class Counter {
+        private final LongAdder hit = new LongAdder();
+        private final LongAdder miss = new LongAdder();
+    }
+}
@@ -0,0 +1,70 @@
+package com.hmdp.utils;
+
+import org.springframework.data.redis.connection.StringRedisConnection;
+import org.springframework.data.redis.core.RedisCallback;
+import org.springframework.data.redis.core.StringRedisTemplate;
+
+import java.util.Collection;
+import java.util.List;
+
+/**
+ * 基于redis bitmap的布隆过滤器, 所有节点共享同一个位数组
+ * 每次读写的k个位操作通过管道一次发送
+ */
+public class RedisBloomFilter extends AbstractBloomFilter {
+
+    private final String key;
+    private final StringRedisTemplate stringRedisTemplate;
+
+    public RedisBloomFilter(String key, long expectedInsertions, double fpp, StringRedisTemplate stringRedisTemplate) {
+        super(expectedInsertions, fpp);
+        this.key = key;
+        this.stringRedisTemplate = stringRedisTemplate;
+    }
+
+    @Override
+    public void add(Object id) {
+        stringRedisTemplate.executePipelined((RedisCallback<Object>) connection -> {
+            StringRedisConnection conn = (StringRedisConnection) connection;
+            for (long index : indexes(id)) {
+                conn.setBit(key, index, true);
+            }
+            return null;
+        });
+    }
+
+    @Override
+    public void addAll(Collection<?> ids) {
+        stringRedisTemplate.executePipelined((RedisCallback<Object>) connection -> {
+            StringRedisConnection conn = (StringRedisConnection) connection;
+            for (Object id : ids) {
+                for (long index : indexes(id)) {
+                    conn.setBit(key, index, true);
+                }
+            }
+            return null;
+        });
+    }
+
+    @Override
+    public boolean mightContain(Object id) {
+        List<Object> results = stringRedisTemplate.executePipelined((RedisCallback<Object>) connection -> {
+            StringRedisConnection conn = (StringRedisConnection) connection;
+            // 位数组不存在时(例如redis被清空)视为可能存在, 避免误拦截
+            conn.exists(key);
+            for (long index : indexes(id)) {
+                conn.getBit(key, index);
+            }
+            return null;
+        });
+        if (!Boolean.TRUE.equals(results.get(0))) {
+            return true;
+        }
+        for (int i = 1; i < results.size(); i++) {
+            if (!Boolean.TRUE.equals(results.get(i))) {
+                return false;
+            }
+        }
+        return true;
+    }
+}
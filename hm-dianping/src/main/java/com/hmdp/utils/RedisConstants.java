@@ -0,0 +1,56 @@
+package com.hmdp.utils;
+
+public class RedisConstants {
+    public static final String LOGIN_CODE_KEY = "login:code:";
+    public static final Long LOGIN_CODE_TTL = 2L;
+    public static final String LOGIN_USER_KEY = "login:token:";
+    public static final Long LOGIN_USER_TTL = 36000L;
+
+    public static final Long CACHE_NULL_TTL = 2L;
+
+    public static final Long CACHE_SHOP_TTL = 30L;
+    public static final Long CACHE_SHOP_HARD_TTL = 1440L;
+    public static final String CACHE_SHOP_KEY = "cache:shop:";
+    public static final String CACHE_TYPE_KEY = "cache:type:";
+    public static final String CACHE_BLOG_KEY = "cache:blog:";
+    public static final Long CACHE_USER_TTL = 30L;
+    public static final String CACHE_USER_KEY = "cache:user:";
+    public static final String CACHE_INVALIDATE_CHANNEL = "cache:invalidate";
+
+    public static final String BLOOM_FILTER_KEY = "bloom:";
+    public static final String BLOOM_ADD_CHANNEL = "cache:bloom:add";
+    public static final String BLOOM_REBUILD_SUFFIX = ":rebuild";
+    public static final String BLOOM_REBUILDING_SUFFIX = ":rebuilding";
+    public static final String LOCK_BLOOM_KEY = "lock:bloom:";
+    public static final int BLOOM_LOAD_BATCH_SIZE = 1000;
+    public static final long BLOOM_REBUILD_INTERVAL = 3600000L;
+
+    public static final String ID_WORKER_KEY = "id:worker:";
+    public static final Long ID_WORKER_LEASE_TTL = 86400L;
+
+    public static final String LOCK_SHOP_KEY = "lock:shop:";
+    public static final Long LOCK_SHOP_TTL = 10L;
+    public static final int LOCK_WAIT_RETRIES = 10;
+    public static final Long LOCK_WAIT_INTERVAL = 50L;
+    public static final String LOCK_KEY = "lock:";
+    public static final String LOCK_CHANNEL = "lock:channel:";
+    public static final String LOCK_NODES_KEY = "lock:nodes";
+
+    public static final String SECKILL_STOCK_KEY = "seckill:stock:";
+    public static final String SECKILL_ORDER_KEY = "seckill:order:";
+    public static final String SECKILL_TIME_KEY = "seckill:time:";
+    public static final String SECKILL_ORDER_STREAM = "stream.orders";
+    public static final String SECKILL_ORDER_GROUP = "g1";
+    public static final String SECKILL_ORDER_DLQ = "stream.orders.dlq";
+    public static final String SECKILL_SOLD_OUT_CHANNEL = "seckill:sold-out";
+    public static final String BLOG_LIKED_KEY = "blog:liked:";
+    public static final String BLOG_LIKE_COUNT_KEY = "blog:like:count";
+    public static final String BLOG_LIKE_DELTA_KEY = "blog:like:delta";
+    public static final String BLOG_LIKE_LOCK = "blog:like";
+    public static final String BLOG_HOT_KEY = "blog:hot";
+    public static final String BLOG_HOT_BASE_KEY = "blog:hot:base";
+    public static final String LOCK_BLOG_HOT_KEY = "lock:blog:hot";
+    public static final String FEED_KEY = "feed:";
+    public static final String SHOP_GEO_KEY = "shop:geo:";
+    public static final String USER_SIGN_KEY = "sign:";
+}
@@ -0,0 +1,70 @@
+package com.hmdp.utils;
+
+import org.springframework.data.redis.connection.Message;
+import org.springframework.data.redis.connection.MessageListener;
+import org.springframework.data.redis.core.StringRedisTemplate;
+import org.springframework.stereotype.Component;
+
+import java.nio.charset.StandardCharsets;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * 创建SimpleRedisLock, 并分发解锁通知
+ * 等待锁的线程按频道登记, 收到unlock.lua发布的消息后唤醒该频道的所有等待线程重新抢锁
+ */
+@Component
+public class RedisLockRegistry implements MessageListener {
+
+    // 解锁频道 -> 等待的线程
+    private final Map<String, Waiters> waiters = new ConcurrentHashMap<>();
+
+    private final StringRedisTemplate stringRedisTemplate;
+
+    public RedisLockRegistry(StringRedisTemplate stringRedisTemplate) {
+        this.stringRedisTemplate = stringRedisTemplate;
+    }
+
+    public ILock getLock(String name) {
+        return new SimpleRedisLock(name, stringRedisTemplate, this);
+    }
+
+    /**
+     * 登记等待, 需要在抢锁之前调用, 避免错过抢锁和等待之间发出的通知
+     */
+    Waiters enter(String channel) {
+        return waiters.compute(channel, (k, v) -> {
+            Waiters w = v == null ? new Waiters() : v;
+            w.count++;
+            return w;
+        });
+    }
+
+    void leave(String channel) {
+        waiters.computeIfPresent(channel, (k, v) -> --v.count == 0 ? null : v);
+    }
+
+    @Override
+    public void onMessage(Message message, byte[] pattern) {
+        String channel = new String(message.getChannel(), StandardCharsets.UTF_8);
+        waiters.computeIfPresent(channel, (k, v) -> {
+            // 唤醒所有登记的线程, 多余的许可只会导致一次多余的抢锁
+            v.semaphore.release(v.count);
+            return v;
+        });
+    }
+
+    static class Waiters {
+
+        private final Semaphore semaphore = new Semaphore(0);
+
+        // 只在ConcurrentHashMap.compute中修改
+        private int count;
+
+        boolean await(long millis) throws InterruptedException {
+            return semaphore.tryAcquire(millis, TimeUnit.MILLISECONDS);
+        }
+    }
+}
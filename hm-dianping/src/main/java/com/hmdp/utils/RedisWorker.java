@@ -0,0 +1,51 @@
+package com.hmdp.utils;
+
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.data.redis.core.StringRedisTemplate;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+
+import javax.annotation.PreDestroy;
+
+import static com.hmdp.utils.SystemConstants.ID_WORKER_RENEW_INTERVAL;
+
+/**
+ * 全局唯一id, 按hmdp.id.mode选择实现
+ * segment: 号段模式, 每ID_SEGMENT_STEP个id访问一次redis
+ * snowflake: 雪花算法, 只在启动时从redis租用workerId, 生成id不依赖redis
+ */
+@Slf4j
+@Component
+public class RedisWorker implements IdGenerator {
+
+    public static final String MODE_SNOWFLAKE = "snowflake";
+
+    private final IdGenerator idGenerator;
+
+    public RedisWorker(StringRedisTemplate stringRedisTemplate, @Value("${hmdp.id.mode:segment}") String mode) {
+        this.idGenerator = MODE_SNOWFLAKE.equals(mode)
+                ? SnowflakeIdGenerator.lease(stringRedisTemplate)
+                : new SegmentIdGenerator(stringRedisTemplate);
+        log.info("id生成模式:{}", mode);
+    }
+
+    @Override
+    public long nextId(String keyPrefix){
+        return idGenerator.nextId(keyPrefix);
+    }
+
+    // 续约workerId, 续约失败不影响生成id
+    @Scheduled(fixedDelay = ID_WORKER_RENEW_INTERVAL)
+    public void renew() {
+        if (idGenerator instanceof SnowflakeIdGenerator) {
+            ((SnowflakeIdGenerator) idGenerator).renew();
+        }
+    }
+
+    @PreDestroy
+    @Override
+    public void close() {
+        idGenerator.close();
+    }
+}
@@ -21,6 +21,9 @@ public class RefreshTokenInterceptor implements HandlerInterceptor {
 
     @Override
     public boolean preHandle(HttpServletRequest request, HttpServletResponse response, Object handler) throws Exception {
+        // 开启本次请求的用户查询缓存, 未登录的请求也会查询博客作者等用户信息
+        RequestUserCache.open();
+
         // 1. 获取请求头中的token
         String token = request.getHeader("authorization");
 
@@ -53,5 +56,6 @@ public class RefreshTokenInterceptor implements HandlerInterceptor {
     @Override
     public void afterCompletion(HttpServletRequest request, HttpServletResponse response, Object handler, Exception ex) throws Exception {
         UserHolder.removeUser();
+        RequestUserCache.clear();
     }
 }
@@ -0,0 +1,28 @@
+package com.hmdp.utils;
+
+import com.hmdp.dto.UserDTO;
+
+import java.util.HashMap;
+import java.util.Map;
+
+/**
+ * 一次请求内已查询过的用户, 同一作者在列表中出现多次或多个方法查询同一用户时只查询一次
+ * 由RefreshTokenInterceptor在请求开始时开启、结束时清除, 请求之外(如消费线程)不缓存
+ * 值为null表示用户不存在; 缓存的对象在请求内共享, 调用方不要修改
+ */
+public class RequestUserCache {
+    private static final ThreadLocal<Map<Long, UserDTO>> tl = new ThreadLocal<>();
+
+    public static void open(){
+        tl.set(new HashMap<>());
+    }
+
+    // 未开启时返回null
+    public static Map<Long, UserDTO> get(){
+        return tl.get();
+    }
+
+    public static void clear(){
+        tl.remove();
+    }
+}
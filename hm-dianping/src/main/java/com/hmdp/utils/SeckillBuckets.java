@@ -0,0 +1,69 @@
+package com.hmdp.utils;
+
+import java.time.LocalDateTime;
+import java.time.ZoneId;
+import java.util.HashMap;
+import java.util.Map;
+
+import static com.hmdp.utils.RedisConstants.*;
+import static com.hmdp.utils.SystemConstants.SECKILL_STOCK_BUCKETS;
+
+/**
+ * 秒杀库存分桶
+ * 每张秒杀券的库存平均拆分到SECKILL_STOCK_BUCKETS个桶中, key中的hash tag为桶号,
+ * 同一个桶的库存、下单用户和订单队列位于同一个slot, 不同的桶分散在不同的slot
+ * 用户的下单记录固定保存在按用户id计算的主桶中, 用于一人一单判断
+ */
+public class SeckillBuckets {
+
+    // 秒杀时间hash中补充库存次数的字段, 每次补充库存加1, 由seckill.lua返回给调用方
+    public static final String EPOCH_FIELD = "epoch";
+
+    private SeckillBuckets() {
+    }
+
+    // seckill:stock:{0}:10
+    public static String stockKey(Long voucherId, int bucket) {
+        return SECKILL_STOCK_KEY + "{" + bucket + "}:" + voucherId;
+    }
+
+    // seckill:order:{0}:10
+    public static String orderKey(Long voucherId, int bucket) {
+        return SECKILL_ORDER_KEY + "{" + bucket + "}:" + voucherId;
+    }
+
+    // seckill:time:{0}:10, 秒杀开始和结束时间的hash, 每个桶保存一份
+    public static String timeKey(Long voucherId, int bucket) {
+        return SECKILL_TIME_KEY + "{" + bucket + "}:" + voucherId;
+    }
+
+    /**
+     * 秒杀时间, 毫秒时间戳, 与redis的TIME比较
+     */
+    public static Map<String, String> timeFields(LocalDateTime beginTime, LocalDateTime endTime) {
+        Map<String, String> fields = new HashMap<>(4);
+        fields.put("begin", String.valueOf(beginTime.atZone(ZoneId.systemDefault()).toInstant().toEpochMilli()));
+        fields.put("end", String.valueOf(endTime.atZone(ZoneId.systemDefault()).toInstant().toEpochMilli()));
+        return fields;
+    }
+
+    // stream.orders:{0}
+    public static String streamKey(int bucket) {
+        return SECKILL_ORDER_STREAM + ":{" + bucket + "}";
+    }
+
+    public static int homeBucket(Long userId) {
+        return (int) Math.floorMod(userId, (long) SECKILL_STOCK_BUCKETS);
+    }
+
+    /**
+     * 将库存拆分到各个桶, 余数分配给前面的桶
+     */
+    public static int[] split(int stock) {
+        int[] stocks = new int[SECKILL_STOCK_BUCKETS];
+        for (int i = 0; i < SECKILL_STOCK_BUCKETS; i++) {
+            stocks[i] = stock / SECKILL_STOCK_BUCKETS + (i < stock % SECKILL_STOCK_BUCKETS ? 1 : 0);
+        }
+        return stocks;
+    }
+}
@@ -0,0 +1,161 @@
+package com.hmdp.utils;
+
+import cn.hutool.core.thread.ThreadFactoryBuilder;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.data.redis.core.StringRedisTemplate;
+
+import java.time.LocalDateTime;
+import java.time.ZoneOffset;
+import java.time.format.DateTimeFormatter;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicLong;
+
+import static com.hmdp.utils.SystemConstants.ID_SEGMENT_PREFETCH_THRESHOLD;
+import static com.hmdp.utils.SystemConstants.ID_SEGMENT_STEP;
+
+/**
+ * 号段模式: 31位时间戳(秒) + 32位当天序列号
+ * 序列号按号段分配, 一次INCRBY预留ID_SEGMENT_STEP个, 之后在本地原子递增
+ * 当前号段剩余不足ID_SEGMENT_PREFETCH_THRESHOLD时异步预取下一个号段
+ * 各节点的号段互不重叠, id仍然唯一, 但不同节点之间不再严格递增
+ */
+@Slf4j
+public class SegmentIdGenerator implements IdGenerator {
+
+    private static final long BEGIN_TIMESTAMP = 1705881600L;
+    private static final int COUNT_BITS = 32;
+    private static final DateTimeFormatter DATE_FORMATTER = DateTimeFormatter.ofPattern("yyyy:MM:dd");
+
+    private static final ExecutorService PREFETCH_EXECUTOR = Executors.newSingleThreadExecutor(
+            new ThreadFactoryBuilder().setNamePrefix("id-segment-").setDaemon(true).build());
+
+    private final StringRedisTemplate stringRedisTemplate;
+
+    // 业务前缀 -> 号段
+    private final Map<String, SegmentBuffer> buffers = new ConcurrentHashMap<>();
+
+    public SegmentIdGenerator(StringRedisTemplate stringRedisTemplate) {
+        this.stringRedisTemplate = stringRedisTemplate;
+    }
+
+    @Override
+    public long nextId(String keyPrefix){
+        // 1. 生成时间戳
+        LocalDateTime now = LocalDateTime.now();
+        long nowSecond = now.toEpochSecond(ZoneOffset.UTC);
+        long timeStamp = nowSecond - BEGIN_TIMESTAMP;
+
+        // 2. 生成序列号
+        String date = now.format(DATE_FORMATTER);
+        long count = buffers.computeIfAbsent(keyPrefix, SegmentBuffer::new).next(date);
+
+        // 3. 拼接并返回
+
+        return timeStamp << COUNT_BITS | count;
+    }
+
+    // 预留一个号段 [hi - step + 1, hi]
+    private Segment allocate(String keyPrefix, String date) {
+        Long hi = stringRedisTemplate.opsForValue().increment("icr:" + keyPrefix + ":" + date, ID_SEGMENT_STEP);
+        if (hi == null) {
+            throw new IllegalStateException("号段分配失败, keyPrefix:" + keyPrefix);
+        }
+        return new Segment(date, hi - ID_SEGMENT_STEP + 1, hi + 1);
+    }
+
+    private static class Segment {
+        private final String date;
+        private final AtomicLong cursor;
+        private final long end;
+
+        private Segment(String date, long start, long end) {
+            this.date = date;
+            this.cursor = new AtomicLong(start);
+            this.end = end;
+        }
+
+        // 号段用完返回-1
+        private long take() {
+            long value = cursor.getAndIncrement();
+            return value < end ? value : -1;
+        }
+
+        private long remaining() {
+            return end - cursor.get();
+        }
+    }
+
+    private class SegmentBuffer {
+        private final String keyPrefix;
+        private volatile Segment current;
+        private volatile Segment next;
+        private final AtomicBoolean prefetching = new AtomicBoolean();
+
+        private SegmentBuffer(String keyPrefix) {
+            this.keyPrefix = keyPrefix;
+        }
+
+        private long next(String date) {
+            while (true) {
+                // 1. 快速路径: 从当前号段取号, 不加锁
+                Segment segment = current;
+                if (segment != null && segment.date.equals(date)) {
+                    long value = segment.take();
+                    if (value != -1) {
+                        if (segment.remaining() <= ID_SEGMENT_PREFETCH_THRESHOLD) {
+                            prefetch(segment);
+                        }
+                        return value;
+                    }
+                }
+                // 2. 号段用完或日期变化, 切换号段后重试
+                switchSegment(segment, date);
+            }
+        }
+
+        private synchronized void switchSegment(Segment exhausted, String date) {
+            // 其他线程已经切换
+            if (current != exhausted) {
+                return;
+            }
+            Segment prefetched = next;
+            next = null;
+            if (prefetched != null && prefetched.date.equals(date)) {
+                current = prefetched;
+            } else {
+                // 没有可用的预取号段, 同步分配
+                current = allocate(keyPrefix, date);
+            }
+        }
+
+        // 异步预取下一个号段, 同一时间只有一个预取任务
+        private void prefetch(Segment segment) {
+            if (next != null || !prefetching.compareAndSet(false, true)) {
+                return;
+            }
+            try {
+                PREFETCH_EXECUTOR.execute(() -> {
+                    try {
+                        Segment prefetched = allocate(keyPrefix, segment.date);
+                        synchronized (this) {
+                            if (current == segment && next == null) {
+                                next = prefetched;
+                            }
+                        }
+                    } catch (Exception e) {
+                        log.error("号段预取失败, keyPrefix:{}", keyPrefix, e);
+                    } finally {
+                        prefetching.set(false);
+                    }
+                });
+            } catch (Exception e) {
+                prefetching.set(false);
+                throw e;
+            }
+        }
+    }
+}
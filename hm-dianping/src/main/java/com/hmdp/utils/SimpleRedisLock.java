@@ -0,0 +1,217 @@
+package com.hmdp.utils;
+
+import cn.hutool.core.lang.UUID;
+import cn.hutool.core.thread.ThreadFactoryBuilder;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.core.io.ClassPathResource;
+import org.springframework.data.redis.core.StringRedisTemplate;
+import org.springframework.data.redis.core.script.DefaultRedisScript;
+
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ScheduledFuture;
+import java.util.concurrent.TimeUnit;
+
+import static com.hmdp.utils.RedisConstants.LOCK_CHANNEL;
+import static com.hmdp.utils.RedisConstants.LOCK_KEY;
+import static com.hmdp.utils.RedisConstants.LOCK_WAIT_INTERVAL;
+import static com.hmdp.utils.SystemConstants.LOCK_WATCHDOG_TIMEOUT;
+
+/**
+ * 基于redis hash的可重入锁, 加锁/解锁/续期都由lua脚本原子完成
+ * 未指定有效期时由看门狗每LOCK_WATCHDOG_TIMEOUT/3续期一次, 持有线程结束或本节点宕机后不再续期, 锁自然过期
+ * 通过RedisLockRegistry创建的锁在等待时订阅解锁通知; 直接new的锁没有通知, 等待时按LOCK_WAIT_INTERVAL重试
+ */
+@Slf4j
+public class SimpleRedisLock implements ILock {
+
+    private static final String ID_PREFIX = UUID.randomUUID().toString(true) + "-";
+
+    private static final DefaultRedisScript<Long> LOCK_SCRIPT = script("lock.lua");
+    private static final DefaultRedisScript<Long> UNLOCK_SCRIPT = script("unlock.lua");
+    private static final DefaultRedisScript<Long> RENEW_SCRIPT = script("lock-renew.lua");
+
+    private static final ScheduledExecutorService WATCHDOG = Executors.newSingleThreadScheduledExecutor(
+            new ThreadFactoryBuilder().setNamePrefix("redis-lock-watchdog-").setDaemon(true).build());
+    private static final ExecutorService ASYNC_EXECUTOR = Executors.newCachedThreadPool(
+            new ThreadFactoryBuilder().setNamePrefix("redis-lock-async-").setDaemon(true).build());
+
+    // 锁的key + 持有者标识 -> 续期任务
+    private static final Map<String, ScheduledFuture<?>> RENEWALS = new ConcurrentHashMap<>();
+
+    private final StringRedisTemplate stringRedisTemplate;
+    private final RedisLockRegistry registry;
+    private final String key;
+    private final String channel;
+
+    // 最近一次加锁使用的有效期, 重入解锁时重置为该值
+    private volatile long leaseMillis = LOCK_WATCHDOG_TIMEOUT;
+
+    public SimpleRedisLock(String name, StringRedisTemplate stringRedisTemplate) {
+        this(name, stringRedisTemplate, null);
+    }
+
+    SimpleRedisLock(String name, StringRedisTemplate stringRedisTemplate, RedisLockRegistry registry) {
+        this.stringRedisTemplate = stringRedisTemplate;
+        this.registry = registry;
+        this.key = LOCK_KEY + name;
+        this.channel = LOCK_CHANNEL + name;
+    }
+
+    @Override
+    public boolean tryLock(long timeoutSec) {
+        return tryAcquire(Thread.currentThread(), TimeUnit.SECONDS.toMillis(timeoutSec)) == null;
+    }
+
+    @Override
+    public boolean tryLock() {
+        return tryAcquire(Thread.currentThread(), -1) == null;
+    }
+
+    @Override
+    public boolean tryLock(long waitTime, long leaseTime, TimeUnit unit) throws InterruptedException {
+        return tryLock(Thread.currentThread(), unit.toMillis(waitTime), leaseTime < 0 ? -1 : unit.toMillis(leaseTime));
+    }
+
+    @Override
+    public CompletableFuture<Boolean> tryLockAsync(long waitTime, long leaseTime, TimeUnit unit) {
+        // 锁归属于调用线程, 而不是执行等待的线程
+        Thread owner = Thread.currentThread();
+        long waitMillis = unit.toMillis(waitTime);
+        long lease = leaseTime < 0 ? -1 : unit.toMillis(leaseTime);
+        return CompletableFuture.supplyAsync(() -> {
+            try {
+                return tryLock(owner, waitMillis, lease);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                throw new CompletionException(e);
+            }
+        }, ASYNC_EXECUTOR);
+    }
+
+    @Override
+    public void unlock() {
+        // 1. 获取线程标识
+        String ownerId = ownerId(Thread.currentThread());
+        // 2. 原子地校验持有者并释放
+        Long result = stringRedisTemplate.execute(UNLOCK_SCRIPT, Arrays.asList(key, channel),
+                ownerId, String.valueOf(leaseMillis));
+        // 3. 完全释放或已不再持有, 停止续期
+        if (result == null || result == 1) {
+            cancelRenewal(ownerId);
+        }
+        if (result == null) {
+            throw new IllegalMonitorStateException("当前线程未持有锁, key:" + key + ", owner:" + ownerId);
+        }
+    }
+
+    private boolean tryLock(Thread owner, long waitMillis, long leaseMillis) throws InterruptedException {
+        long deadline = System.currentTimeMillis() + waitMillis;
+        // 1. 尝试获取锁
+        Long ttl = tryAcquire(owner, leaseMillis);
+        if (ttl == null) {
+            return true;
+        }
+        if (waitMillis <= 0) {
+            return false;
+        }
+        // 2. 先登记等待再重试, 重试之后发出的解锁通知不会丢失
+        RedisLockRegistry.Waiters waiters = registry == null ? null : registry.enter(channel);
+        try {
+            while (true) {
+                ttl = tryAcquire(owner, leaseMillis);
+                if (ttl == null) {
+                    return true;
+                }
+                long remaining = deadline - System.currentTimeMillis();
+                if (remaining <= 0) {
+                    return false;
+                }
+                // 3. 等待解锁通知, 最多等到锁过期
+                long wait = ttl >= 0 ? Math.min(ttl, remaining) : remaining;
+                if (waiters != null) {
+                    waiters.await(wait);
+                } else {
+                    Thread.sleep(Math.min(wait, LOCK_WAIT_INTERVAL));
+                }
+            }
+        } finally {
+            if (waiters != null) {
+                registry.leave(channel);
+            }
+        }
+    }
+
+    /**
+     * @param leaseMillis 为-1时使用看门狗
+     * @return 获取成功返回null, 否则返回锁的剩余有效期
+     */
+    private Long tryAcquire(Thread owner, long leaseMillis) {
+        boolean watchdog = leaseMillis < 0;
+        long lease = watchdog ? LOCK_WATCHDOG_TIMEOUT : leaseMillis;
+        String ownerId = ownerId(owner);
+        Long ttl = stringRedisTemplate.execute(LOCK_SCRIPT, Collections.singletonList(key),
+                ownerId, String.valueOf(lease));
+        if (ttl == null) {
+            this.leaseMillis = lease;
+            if (watchdog) {
+                scheduleRenewal(owner, ownerId);
+            }
+        }
+        return ttl;
+    }
+
+    private void scheduleRenewal(Thread owner, String ownerId) {
+        // 重入时已有续期任务
+        RENEWALS.computeIfAbsent(key + ":" + ownerId, k -> {
+            long interval = LOCK_WATCHDOG_TIMEOUT / 3;
+            return WATCHDOG.scheduleWithFixedDelay(() -> renew(owner, ownerId), interval, interval, TimeUnit.MILLISECONDS);
+        });
+    }
+
+    private void renew(Thread owner, String ownerId) {
+        // 1. 持有线程已结束但没有unlock, 不再续期, 等待锁过期
+        if (!owner.isAlive()) {
+            log.warn("持有锁的线程已结束, 停止续期, key:{}, owner:{}", key, ownerId);
+            cancelRenewal(ownerId);
+            return;
+        }
+        try {
+            // 2. 续期, 锁已不属于该持有者时停止
+            Long renewed = stringRedisTemplate.execute(RENEW_SCRIPT, Collections.singletonList(key),
+                    ownerId, String.valueOf(LOCK_WATCHDOG_TIMEOUT));
+            if (renewed == null || renewed == 0) {
+                log.warn("锁已不再持有, 停止续期, key:{}, owner:{}", key, ownerId);
+                cancelRenewal(ownerId);
+            }
+        } catch (Exception e) {
+            // redis暂时不可用时保留任务, 下次继续续期
+            log.error("锁续期失败, key:{}", key, e);
+        }
+    }
+
+    private void cancelRenewal(String ownerId) {
+        ScheduledFuture<?> future = RENEWALS.remove(key + ":" + ownerId);
+        if (future != null) {
+            future.cancel(false);
+        }
+    }
+
+    private static String ownerId(Thread thread) {
+        return ID_PREFIX + thread.getId();
+    }
+
+    private static DefaultRedisScript<Long> script(String location) {
+        DefaultRedisScript<Long> script = new DefaultRedisScript<>();
+        script.setLocation(new ClassPathResource(location));
+        script.setResultType(Long.class);
+        return script;
+    }
+}
@@ -0,0 +1,145 @@
+package com.hmdp.utils;
+
+import cn.hutool.core.util.BooleanUtil;
+import cn.hutool.core.util.IdUtil;
+import cn.hutool.core.util.RandomUtil;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.data.redis.core.StringRedisTemplate;
+import org.springframework.data.redis.core.script.DefaultRedisScript;
+
+import java.lang.management.ManagementFactory;
+import java.util.Collections;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+import static com.hmdp.utils.RedisConstants.ID_WORKER_KEY;
+import static com.hmdp.utils.RedisConstants.ID_WORKER_LEASE_TTL;
+import static com.hmdp.utils.SystemConstants.ID_CLOCK_BACKWARD_TOLERANCE;
+
+/**
+ * 雪花算法: 0 | 1 | 40位时间戳(毫秒) | 10位workerId | 12位序列号
+ * 第二位固定为1, 号段模式的id在该位为0(时间戳秒数小于2^30), 切换模式后两种id不会重复
+ * 时间戳和序列号保存在一个AtomicLong中, 通过CAS生成, 不加锁
+ * 时钟回拨不超过ID_CLOCK_BACKWARD_TOLERANCE毫秒时沿用上一次的时间戳继续递增, 超过时拒绝生成
+ * 同一毫秒内的序列号用完后自旋等待下一毫秒, 单个节点每毫秒最多生成4096个id
+ */
+@Slf4j
+public class SnowflakeIdGenerator implements IdGenerator {
+
+    // 2024-01-22 00:00:00 UTC, 与号段模式相同
+    private static final long BEGIN_MILLIS = 1705881600000L;
+    private static final int SEQUENCE_BITS = 12;
+    private static final int WORKER_BITS = 10;
+    private static final int TIMESTAMP_BITS = 40;
+    public static final int MAX_WORKER_ID = (1 << WORKER_BITS) - 1;
+    private static final long MAX_SEQUENCE = (1L << SEQUENCE_BITS) - 1;
+    private static final long MODE_BIT = 1L << (TIMESTAMP_BITS + WORKER_BITS + SEQUENCE_BITS);
+
+    private static final DefaultRedisScript<Long> RENEW_SCRIPT = new DefaultRedisScript<>(
+            "if (redis.call('get', KEYS[1]) == ARGV[1]) then return redis.call('expire', KEYS[1], ARGV[2]) end return 0",
+            Long.class);
+    private static final DefaultRedisScript<Long> RELEASE_SCRIPT = new DefaultRedisScript<>(
+            "if (redis.call('get', KEYS[1]) == ARGV[1]) then return redis.call('del', KEYS[1]) end return 0",
+            Long.class);
+
+    private final long workerId;
+
+    // 上一次生成id时的 时间戳 << SEQUENCE_BITS | 序列号
+    private final AtomicLong state = new AtomicLong();
+
+    private final StringRedisTemplate stringRedisTemplate;
+    private final String leaseValue;
+
+    public SnowflakeIdGenerator(long workerId) {
+        this(workerId, null, null);
+    }
+
+    private SnowflakeIdGenerator(long workerId, StringRedisTemplate stringRedisTemplate, String leaseValue) {
+        if (workerId < 0 || workerId > MAX_WORKER_ID) {
+            throw new IllegalArgumentException("workerId超出范围: " + workerId);
+        }
+        this.workerId = workerId;
+        this.stringRedisTemplate = stringRedisTemplate;
+        this.leaseValue = leaseValue;
+    }
+
+    /**
+     * 从redis租用一个空闲的workerId, 从随机位置开始尝试, 减少多个节点同时启动时的冲突
+     */
+    public static SnowflakeIdGenerator lease(StringRedisTemplate stringRedisTemplate) {
+        String leaseValue = ManagementFactory.getRuntimeMXBean().getName() + ":" + IdUtil.fastSimpleUUID();
+        int start = RandomUtil.randomInt(MAX_WORKER_ID + 1);
+        for (int i = 0; i <= MAX_WORKER_ID; i++) {
+            int workerId = (start + i) & MAX_WORKER_ID;
+            Boolean success = stringRedisTemplate.opsForValue()
+                    .setIfAbsent(ID_WORKER_KEY + workerId, leaseValue, ID_WORKER_LEASE_TTL, TimeUnit.SECONDS);
+            if (BooleanUtil.isTrue(success)) {
+                log.info("租用workerId成功, workerId:{}", workerId);
+                return new SnowflakeIdGenerator(workerId, stringRedisTemplate, leaseValue);
+            }
+        }
+        throw new IllegalStateException("没有空闲的workerId");
+    }
+
+    @Override
+    public long nextId(String keyPrefix) {
+        while (true) {
+            long last = state.get();
+            long lastMillis = last >>> SEQUENCE_BITS;
+            long nowMillis = System.currentTimeMillis() - BEGIN_MILLIS;
+            long next;
+            if (nowMillis > lastMillis) {
+                // 1. 进入新的毫秒, 序列号从0开始
+                next = nowMillis << SEQUENCE_BITS;
+            } else {
+                // 2. 同一毫秒内或时钟小幅回拨, 沿用上一次的时间戳, 回拨过大时拒绝生成
+                if (lastMillis - nowMillis > ID_CLOCK_BACKWARD_TOLERANCE) {
+                    throw new IllegalStateException("时钟回拨" + (lastMillis - nowMillis) + "ms, 拒绝生成id");
+                }
+                if ((last & MAX_SEQUENCE) == MAX_SEQUENCE) {
+                    // 3. 序列号已用完, 等待时钟进入下一毫秒
+                    Thread.yield();
+                    continue;
+                }
+                next = last + 1;
+            }
+            if (state.compareAndSet(last, next)) {
+                long millis = next >>> SEQUENCE_BITS;
+                long sequence = next & MAX_SEQUENCE;
+                return MODE_BIT | millis << (WORKER_BITS + SEQUENCE_BITS) | workerId << SEQUENCE_BITS | sequence;
+            }
+        }
+    }
+
+    public long getWorkerId() {
+        return workerId;
+    }
+
+    // 续约租用的workerId
+    public void renew() {
+        if (stringRedisTemplate == null) {
+            return;
+        }
+        try {
+            Long result = stringRedisTemplate.execute(RENEW_SCRIPT, Collections.singletonList(ID_WORKER_KEY + workerId),
+                    leaseValue, String.valueOf(ID_WORKER_LEASE_TTL));
+            if (result == null || result == 0) {
+                log.error("workerId租约已丢失, workerId:{}", workerId);
+            }
+        } catch (Exception e) {
+            log.warn("workerId续约失败, workerId:{}", workerId, e);
+        }
+    }
+
+    @Override
+    public void close() {
+        if (stringRedisTemplate == null) {
+            return;
+        }
+        try {
+            stringRedisTemplate.execute(RELEASE_SCRIPT, Collections.singletonList(ID_WORKER_KEY + workerId), leaseValue);
+        } catch (Exception e) {
+            log.warn("释放workerId失败, workerId:{}", workerId, e);
+        }
+    }
+}
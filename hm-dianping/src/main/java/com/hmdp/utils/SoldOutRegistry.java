@@ -0,0 +1,94 @@
+package com.hmdp.utils;
+
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.data.redis.connection.Message;
+import org.springframework.data.redis.connection.MessageListener;
+import org.springframework.data.redis.core.StringRedisTemplate;
+import org.springframework.stereotype.Component;
+
+import java.nio.charset.StandardCharsets;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+import static com.hmdp.utils.RedisConstants.SECKILL_SOLD_OUT_CHANNEL;
+
+/**
+ * 本节点的秒杀券售罄标记, 售罄后的请求不再访问redis
+ * 第一次收到库存不足时标记并通过redis频道广播, 补充库存后清除所有节点的标记
+ * 每次补充库存时redis中该券的epoch加1, 售罄和清除消息都带有epoch, 早于已清除epoch的售罄标记一律忽略,
+ * 避免补充库存之前发出的售罄消息晚于清除消息到达, 使节点在有库存时一直拒绝请求
+ */
+@Slf4j
+@Component
+public class SoldOutRegistry implements MessageListener {
+
+    private static final String SOLD_OUT = "out:";
+    private static final String RESET = "reset:";
+
+    // 优惠券id -> 判断售罄时的epoch
+    private final Map<Long, Long> soldOut = new ConcurrentHashMap<>();
+
+    // 优惠券id -> 本节点已知的最近一次补充库存的epoch
+    private final Map<Long, Long> resetEpochs = new ConcurrentHashMap<>();
+
+    private final StringRedisTemplate stringRedisTemplate;
+
+    public SoldOutRegistry(StringRedisTemplate stringRedisTemplate) {
+        this.stringRedisTemplate = stringRedisTemplate;
+    }
+
+    public boolean isSoldOut(Long voucherId) {
+        return soldOut.containsKey(voucherId);
+    }
+
+    /**
+     * 标记售罄并通知其他节点
+     * @param epoch seckill.lua判断库存时读取的epoch, 早于已知的补充库存时忽略
+     */
+    public void markSoldOut(Long voucherId, long epoch) {
+        if (!markLocal(voucherId, epoch)) {
+            return;
+        }
+        log.info("秒杀券已售罄, voucherId:{}, epoch:{}", voucherId, epoch);
+        stringRedisTemplate.convertAndSend(SECKILL_SOLD_OUT_CHANNEL, SOLD_OUT + voucherId + ":" + epoch);
+    }
+
+    /**
+     * 补充库存后清除所有节点的标记
+     * @param epoch 补充库存后redis中的epoch
+     */
+    public void reset(Long voucherId, long epoch) {
+        resetLocal(voucherId, epoch);
+        stringRedisTemplate.convertAndSend(SECKILL_SOLD_OUT_CHANNEL, RESET + voucherId + ":" + epoch);
+    }
+
+    // 标记和清除只在售罄和补充库存时发生, 加锁保证判断epoch和修改标记不会交错
+    private synchronized boolean markLocal(Long voucherId, long epoch) {
+        if (epoch < resetEpochs.getOrDefault(voucherId, 0L) || soldOut.containsKey(voucherId)) {
+            return false;
+        }
+        soldOut.put(voucherId, epoch);
+        return true;
+    }
+
+    private synchronized void resetLocal(Long voucherId, long epoch) {
+        resetEpochs.merge(voucherId, epoch, Math::max);
+        // 晚到的旧清除消息不清除之后的售罄标记
+        Long marked = soldOut.get(voucherId);
+        if (marked != null && marked < epoch) {
+            soldOut.remove(voucherId);
+        }
+    }
+
+    @Override
+    public void onMessage(Message message, byte[] pattern) {
+        String body = new String(message.getBody(), StandardCharsets.UTF_8);
+        if (body.startsWith(SOLD_OUT)) {
+            String[] parts = body.substring(SOLD_OUT.length()).split(":");
+            markLocal(Long.valueOf(parts[0]), Long.parseLong(parts[1]));
+        } else if (body.startsWith(RESET)) {
+            String[] parts = body.substring(RESET.length()).split(":");
+            resetLocal(Long.valueOf(parts[0]), Long.parseLong(parts[1]));
+        }
+    }
+}
@@ -0,0 +1,49 @@
+package com.hmdp.utils;
+
+public class SystemConstants {
+    public static final String IMAGE_UPLOAD_DIR = "E:\\java_study\\nginx-1.18.0\\nginx-1.18.0\\html\\hmdp\\imgs";
+    public static final String USER_NICK_NAME_PREFIX = "user_";
+    public static final int DEFAULT_PAGE_SIZE = 5;
+    public static final int MAX_PAGE_SIZE = 10;
+    public static final int LOCAL_CACHE_MAX_SIZE = 10000;
+    public static final long LOCAL_CACHE_TTL = 10000L;
+    public static final int CACHE_REBUILD_CORE_SIZE = 4;
+    public static final int CACHE_REBUILD_MAX_SIZE = 10;
+    public static final int CACHE_REBUILD_QUEUE_CAPACITY = 1000;
+    public static final int CACHE_REBUILD_PERMITS = 4;
+    public static final double CACHE_REFRESH_BETA = 1.0;
+    public static final int CACHE_WARMUP_BATCH_SIZE = 500;
+    public static final int HOT_KEY_WINDOW_BUCKETS = 10;
+    public static final long HOT_KEY_BUCKET_MILLIS = 1000L;
+    public static final int HOT_KEY_SKETCH_WIDTH = 4096;
+    public static final int HOT_KEY_MAX_SIZE = 100;
+    public static final long HOT_KEY_LOCAL_TTL = 2000L;
+    public static final long SECKILL_READ_COUNT = 10L;
+    public static final long SECKILL_READ_BLOCK = 2000L;
+    public static final long SECKILL_PENDING_IDLE = 30000L;
+    public static final long SECKILL_RECLAIM_INTERVAL = 10000L;
+    public static final int SECKILL_MAX_DELIVERIES = 3;
+    public static final int SECKILL_BATCH_SIZE = 100;
+    public static final long SECKILL_BATCH_WAIT = 20L;
+    public static final int SECKILL_STOCK_BUCKETS = 4;
+    public static final long SECKILL_META_LOCAL_TTL = 60000L;
+    public static final long ID_SEGMENT_STEP = 1000L;
+    public static final long ID_SEGMENT_PREFETCH_THRESHOLD = 200L;
+    public static final long ID_WORKER_RENEW_INTERVAL = 600000L;
+    public static final long ID_CLOCK_BACKWARD_TOLERANCE = 1000L;
+    public static final long LOCK_WATCHDOG_TIMEOUT = 30000L;
+    public static final int ORDER_LOCK_STRIPES = 64;
+    public static final long ORDER_LOCK_WAIT = 500L;
+    public static final long ORDER_LOCK_ESCALATION_TTL = 60000L;
+    public static final long ORDER_LOCK_NODE_CHECK_INTERVAL = 5000L;
+    public static final long BLOG_LIKE_FLUSH_INTERVAL = 5000L;
+    public static final long BLOG_LIKE_RECONCILE_INTERVAL = 3600000L;
+    public static final int BLOG_LIKE_RECONCILE_BATCH_SIZE = 500;
+    public static final long BLOG_HOT_REBUILD_INTERVAL = 3600000L;
+    public static final int BLOG_HOT_REBUILD_BATCH_SIZE = 500;
+    public static final long BLOG_HOT_DECAY_SECONDS = 45000L;
+    public static final int FEED_FANOUT_CORE_SIZE = 2;
+    public static final int FEED_FANOUT_QUEUE_CAPACITY = 1000;
+    public static final int FEED_FANOUT_PAGE_SIZE = 1000;
+    public static final long FEED_FANOUT_SHUTDOWN_TIMEOUT = 10000L;
+}
@@ -0,0 +1,221 @@
+package com.hmdp.utils;
+
+import lombok.extern.slf4j.Slf4j;
+import org.redisson.api.RLock;
+import org.redisson.api.RedissonClient;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.data.redis.core.StringRedisTemplate;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+
+import javax.annotation.PreDestroy;
+import java.lang.management.ManagementFactory;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.concurrent.locks.ReentrantLock;
+
+import static com.hmdp.utils.RedisConstants.LOCK_NODES_KEY;
+import static com.hmdp.utils.SystemConstants.*;
+
+/**
+ * 两级锁: 先在本节点的分段锁上串行, 只有可能存在跨节点竞争时才再获取redisson分布式锁
+ * 以下情况使用分布式锁:
+ * 1. 配置hmdp.lock.mode为cluster
+ * 2. 最近有其他节点在线(每个节点定期在LOCK_NODES_KEY中登记)
+ * 3. 调用方标记可能有竞争, 如消息被重新投递
+ * 4. 该key最近发生过跨节点竞争(分布式锁获取失败或重复下单), 在ORDER_LOCK_ESCALATION_TTL内升级
+ */
+@Slf4j
+@Component
+public class TwoTierLock {
+
+    public static final String MODE_CLUSTER = "cluster";
+
+    private final ReentrantLock[] stripes = new ReentrantLock[ORDER_LOCK_STRIPES];
+
+    // 升级为分布式锁的key -> 升级截止时间
+    private final Map<String, Long> escalated = new ConcurrentHashMap<>();
+
+    private final LongAdder localAcquired = new LongAdder();
+    private final LongAdder remoteAcquired = new LongAdder();
+    private final LongAdder localTimeout = new LongAdder();
+    private final LongAdder remoteFailed = new LongAdder();
+    private final LatencyRecorder localWait = new LatencyRecorder();
+    private final LatencyRecorder remoteWait = new LatencyRecorder();
+
+    private final RedissonClient redissonClient;
+    private final StringRedisTemplate stringRedisTemplate;
+    private final boolean clusterMode;
+    private final String nodeName = ManagementFactory.getRuntimeMXBean().getName();
+
+    // 第一次检查之前按多节点处理
+    private volatile boolean multiNode = true;
+
+    public TwoTierLock(RedissonClient redissonClient,
+                       StringRedisTemplate stringRedisTemplate,
+                       @Value("${hmdp.lock.mode:auto}") String mode) {
+        this.redissonClient = redissonClient;
+        this.stringRedisTemplate = stringRedisTemplate;
+        this.clusterMode = MODE_CLUSTER.equalsIgnoreCase(mode);
+        for (int i = 0; i < stripes.length; i++) {
+            stripes[i] = new ReentrantLock();
+        }
+    }
+
+    /**
+     * 获取锁, 本节点的分段锁最多等待ORDER_LOCK_WAIT毫秒, 分布式锁不等待
+     * @param contended 调用方已知可能存在跨节点竞争
+     * @return 获取失败返回null
+     */
+    public Lease tryLock(String key, boolean contended) {
+        // 1. 本节点分段锁, 不同key可能共用一个分段, 需要等待
+        ReentrantLock local = stripes[stripe(key)];
+        long begin = System.nanoTime();
+        boolean locked;
+        try {
+            locked = local.tryLock(ORDER_LOCK_WAIT, TimeUnit.MILLISECONDS);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            return null;
+        }
+        localWait.record(System.nanoTime() - begin);
+        if (!locked) {
+            localTimeout.increment();
+            return null;
+        }
+        if (!shouldEscalate(key, contended)) {
+            localAcquired.increment();
+            return new Lease(local, null);
+        }
+        // 2. 可能存在跨节点竞争, 再获取分布式锁
+        RLock remote = redissonClient.getLock(key);
+        begin = System.nanoTime();
+        boolean remoteLocked;
+        try {
+            remoteLocked = remote.tryLock();
+        } catch (RuntimeException e) {
+            local.unlock();
+            throw e;
+        }
+        remoteWait.record(System.nanoTime() - begin);
+        if (!remoteLocked) {
+            // 被其他节点持有
+            remoteFailed.increment();
+            escalate(key);
+            local.unlock();
+            return null;
+        }
+        remoteAcquired.increment();
+        return new Lease(local, remote);
+    }
+
+    /**
+     * 发现跨节点竞争, 该key在一段时间内使用分布式锁
+     */
+    public void escalate(String key) {
+        escalated.put(key, System.currentTimeMillis() + ORDER_LOCK_ESCALATION_TTL);
+    }
+
+    private boolean shouldEscalate(String key, boolean contended) {
+        if (clusterMode || multiNode || contended) {
+            return true;
+        }
+        Long until = escalated.get(key);
+        if (until == null) {
+            return false;
+        }
+        if (until < System.currentTimeMillis()) {
+            escalated.remove(key, until);
+            return false;
+        }
+        return true;
+    }
+
+    private int stripe(String key) {
+        int h = key.hashCode();
+        return (h ^ (h >>> 16)) & (ORDER_LOCK_STRIPES - 1);
+    }
+
+    /**
+     * 登记本节点并检查是否有其他节点在线, 同时清理过期的升级记录
+     */
+    @Scheduled(fixedDelay = ORDER_LOCK_NODE_CHECK_INTERVAL)
+    public void checkNodes() {
+        long now = System.currentTimeMillis();
+        escalated.values().removeIf(until -> until < now);
+        if (clusterMode) {
+            return;
+        }
+        try {
+            // 1. 登记本节点, score为登记时间
+            stringRedisTemplate.opsForZSet().add(LOCK_NODES_KEY, nodeName, now);
+            // 2. 移除超过3个检查周期没有登记的节点
+            stringRedisTemplate.opsForZSet().removeRangeByScore(LOCK_NODES_KEY, 0, now - 3 * ORDER_LOCK_NODE_CHECK_INTERVAL);
+            // 3. 其他节点在线时使用分布式锁
+            Long nodes = stringRedisTemplate.opsForZSet().zCard(LOCK_NODES_KEY);
+            boolean multi = nodes == null || nodes > 1;
+            if (multi != multiNode) {
+                log.info("在线节点数:{}, 订单锁{}分布式锁", nodes, multi ? "启用" : "停用");
+            }
+            multiNode = multi;
+        } catch (Exception e) {
+            // 无法确认时按多节点处理
+            multiNode = true;
+            log.error("检查在线节点失败", e);
+        }
+    }
+
+    @PreDestroy
+    private void destroy() {
+        try {
+            stringRedisTemplate.opsForZSet().remove(LOCK_NODES_KEY, nodeName);
+        } catch (Exception e) {
+            log.warn("移除节点登记失败, node:{}", nodeName, e);
+        }
+    }
+
+    public Map<String, Object> stats() {
+        Map<String, Object> result = new LinkedHashMap<>();
+        result.put("mode", clusterMode ? MODE_CLUSTER : "auto");
+        result.put("multiNode", multiNode);
+        result.put("escalatedKeys", escalated.size());
+        result.put("localAcquired", localAcquired.sum());
+        result.put("remoteAcquired", remoteAcquired.sum());
+        result.put("localTimeout", localTimeout.sum());
+        result.put("remoteFailed", remoteFailed.sum());
+        result.put("localWait", localWait.toMap());
+        result.put("remoteWait", remoteWait.toMap());
+        return result;
+    }
+
+    /**
+     * 已获取的锁, 按获取的相反顺序释放
+     */
+    public static class Lease {
+
+        private final ReentrantLock local;
+        private final RLock remote;
+
+        private Lease(ReentrantLock local, RLock remote) {
+            this.local = local;
+            this.remote = remote;
+        }
+
+        public boolean isRemote() {
+            return remote != null;
+        }
+
+        public void unlock() {
+            try {
+                if (remote != null) {
+                    remote.unlock();
+                }
+            } finally {
+                local.unlock();
+            }
+        }
+    }
+}
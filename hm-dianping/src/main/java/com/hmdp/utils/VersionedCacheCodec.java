@@ -0,0 +1,41 @@
+package com.hmdp.utils;
+
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+/**
+ * 按首字节的格式版本选择解码方式, 可以同时读取JSON和二进制数据
+ * 写入格式由hmdp.cache.codec决定, 所有节点升级后再切换为binary, 旧数据在过期或重建后逐步替换
+ */
+@Component
+public class VersionedCacheCodec implements CacheCodec {
+
+    public static final String FORMAT_BINARY = "binary";
+
+    private final JsonCacheCodec jsonCodec = new JsonCacheCodec();
+
+    private final BinaryCacheCodec binaryCodec = new BinaryCacheCodec();
+
+    private final boolean writeBinary;
+
+    public VersionedCacheCodec(@Value("${hmdp.cache.codec:json}") String format) {
+        this.writeBinary = FORMAT_BINARY.equals(format);
+    }
+
+    @Override
+    public byte[] encode(Object value, long expireAt) {
+        // 二进制格式不支持的类型(例如集合)仍使用JSON
+        if (writeBinary && binaryCodec.supports(value.getClass())) {
+            return binaryCodec.encode(value, expireAt);
+        }
+        return jsonCodec.encode(value, expireAt);
+    }
+
+    @Override
+    public <R> CacheEntry<R> decode(byte[] bytes, Class<R> type, boolean withExpire) {
+        if (bytes.length > 0 && bytes[0] == BinaryCacheCodec.VERSION_1) {
+            return binaryCodec.decode(bytes, type, withExpire);
+        }
+        return jsonCodec.decode(bytes, type, withExpire);
+    }
+}
@@ -0,0 +1,15 @@
+-- 以点赞集合为准修正点赞数, 返回数据库中应有的点赞数(不含尚未写入数据库的变化量)
+-- KEYS[1] 博客的点赞集合, KEYS[2] 点赞数hash, KEYS[3] 变化量hash
+-- ARGV[1] 博客id
+-- 与blog-like.lua相同, 假设redis为单节点(或主从), 三个key没有共同的hash tag, 不能用于redis集群
+-- 点赞集合不存在时返回-1, 不修正: 可能是redis重启或淘汰导致集合丢失, 此时以集合为准会把点赞数清零
+-- 所有用户都取消点赞的博客集合同样不存在, 也不修正, 它的点赞数由点赞时的变化量保持
+if (redis.call('exists', KEYS[1]) == 0) then
+    return -1
+end
+local count = redis.call('zcard', KEYS[1])
+if (tonumber(redis.call('hget', KEYS[2], ARGV[1])) ~= count) then
+    redis.call('hset', KEYS[2], ARGV[1], count)
+end
+local delta = tonumber(redis.call('hget', KEYS[3], ARGV[1])) or 0
+return count - delta
@@ -0,0 +1,5 @@
+-- 取出并清空待写入数据库的点赞数变化量, 多个节点同时执行时每个变化量只会被取出一次
+-- KEYS[1] 变化量hash
+local deltas = redis.call('hgetall', KEYS[1])
+redis.call('del', KEYS[1])
+return deltas
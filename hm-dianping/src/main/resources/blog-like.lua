@@ -0,0 +1,38 @@
+-- 点赞或取消点赞, 同时调整点赞数和待写入数据库的变化量
+-- KEYS[1] 博客的点赞集合, KEYS[2] 点赞数hash, KEYS[3] 变化量hash, KEYS[4] 热榜, KEYS[5] 热榜基础分数hash
+-- ARGV[1] 用户id, ARGV[2] 博客id, ARGV[3] 点赞时间, ARGV[4] 热榜计分方式
+-- 假设redis为单节点(或主从): 点赞集合按博客区分, 点赞数、变化量和热榜是所有博客共享的key, 没有共同的hash tag,
+-- redis集群中会因CROSSSLOT失败; 热榜必须是一个有序集合, 无法与每个博客的点赞集合放在同一个slot
+local liked = 1
+local delta = 1
+if (redis.call('zscore', KEYS[1], ARGV[1])) then
+    -- 已点赞, 取消点赞
+    redis.call('zrem', KEYS[1], ARGV[1])
+    liked = 0
+    delta = -1
+else
+    redis.call('zadd', KEYS[1], ARGV[3], ARGV[1])
+end
+local count
+if (redis.call('hexists', KEYS[2], ARGV[2]) == 1) then
+    count = redis.call('hincrby', KEYS[2], ARGV[2], delta)
+else
+    -- 点赞数不存在时以点赞集合的数量初始化, 已包含本次变化
+    count = redis.call('zcard', KEYS[1])
+    redis.call('hset', KEYS[2], ARGV[2], count)
+end
+redis.call('hincrby', KEYS[3], ARGV[2], delta)
+-- 更新热榜分数, decay: log10(点赞数) + 发布时间对应的基础分数, 基础分数不存在时等待重建
+-- 热榜不存在(尚未构建或已丢失)时不写入, 否则会生成只包含最近点赞博客的残缺热榜, 查询不再回退到数据库
+if (redis.call('exists', KEYS[4]) == 1) then
+    if (ARGV[4] == 'decay') then
+        local base = redis.call('hget', KEYS[5], ARGV[2])
+        if (base) then
+            redis.call('zadd', KEYS[4], math.log10(math.max(count, 1)) + tonumber(base), ARGV[2])
+        end
+    else
+        redis.call('zadd', KEYS[4], count, ARGV[2])
+    end
+end
+-- 返回操作后是否已点赞和点赞数
+return {liked, count}
@@ -0,0 +1,11 @@
+-- 可重入锁加锁, hash的field为持有者标识, value为重入次数
+-- KEYS[1] 锁的key
+-- ARGV[1] 持有者标识, ARGV[2] 锁的有效期(毫秒)
+if (redis.call('exists', KEYS[1]) == 0 or redis.call('hexists', KEYS[1], ARGV[1]) == 1) then
+    -- 锁不存在或者由自己持有, 重入次数加1并重置有效期
+    redis.call('hincrby', KEYS[1], ARGV[1], 1)
+    redis.call('pexpire', KEYS[1], ARGV[2])
+    return nil
+end
+-- 被其他持有者占用, 返回锁的剩余有效期
+return redis.call('pttl', KEYS[1])
@@ -0,0 +1,29 @@
+-- 认领其他消费者长时间未确认的订单消息(消费者宕机或处理失败), 需要redis 6.2及以上版本
+-- KEYS[1] 订单消息队列
+-- ARGV[1] 消费者组, ARGV[2] 当前消费者, ARGV[3] 最小空闲时间(毫秒), ARGV[4] 游标, ARGV[5] 每次认领数量
+local result = redis.call('xautoclaim', KEYS[1], ARGV[1], ARGV[2], ARGV[3], ARGV[4], 'COUNT', ARGV[5])
+
+-- 返回值: 下一次的游标, 之后每条消息依次为 id, 投递次数, 消息内容(json)
+local reply = { result[1] }
+for _, entry in ipairs(result[2]) do
+    local id = entry[1]
+    -- 认领后查询投递次数, 用于判断是否转入死信队列
+    local pending = redis.call('xpending', KEYS[1], ARGV[1], id, id, 1)
+    local deliveries = 0
+    if (pending[1]) then
+        deliveries = pending[1][4]
+    end
+    -- 消息已被删除时内容为空
+    local body = ''
+    if (entry[2]) then
+        local fields = {}
+        for i = 1, #entry[2], 2 do
+            fields[entry[2][i]] = entry[2][i + 1]
+        end
+        body = cjson.encode(fields)
+    end
+    table.insert(reply, id)
+    table.insert(reply, tostring(deliveries))
+    table.insert(reply, body)
+end
+return reply
@@ -0,0 +1,11 @@
+-- 主桶库存不足时, 从其他桶扣减库存, 所有key位于该桶的slot中
+-- KEYS[1] 库存key, KEYS[2] 订单消息队列
+-- ARGV[1] 优惠券id, ARGV[2] 用户id, ARGV[3] 订单id
+local stock = tonumber(redis.call('get', KEYS[1]))
+if (stock == nil or stock <= 0) then
+    -- 该桶库存不足，返回1
+    return 1
+end
+redis.call('incrby', KEYS[1], -1)
+redis.call('xadd', KEYS[2], '*', 'userId', ARGV[2], 'voucherId', ARGV[1], 'id', ARGV[3])
+return 0
@@ -0,0 +1,52 @@
+-- 主桶下单脚本, 所有key位于用户主桶的slot中
+-- 1.参数列表
+-- 1.1 库存key   seckill:stock:{桶号}:优惠券id  value 是该桶的库存数
+local stockKey = KEYS[1]
+-- 1.2 订单key   seckill:order:{桶号}:优惠券id  这是一个set集合，主桶为该用户的所有购买记录都存入此集合中
+local orderKey = KEYS[2]
+-- 1.3 订单消息队列 stream.orders:{桶号}
+local streamKey = KEYS[3]
+-- 1.4 秒杀时间key seckill:time:{桶号}:优惠券id  hash结构, begin和end为毫秒时间戳, epoch为补充库存的次数
+local timeKey = KEYS[4]
+-- 1.5 优惠券id
+local voucherId = ARGV[1]
+-- 1.6 用户id
+local userId = ARGV[2]
+-- 1.7 订单id
+local orderId = ARGV[3]
+
+-- 2.脚本业务, 返回{结果, epoch}, 调用方以epoch判断售罄是否发生在最近一次补充库存之后
+-- 2.0 判断是否在秒杀时间内, 使用redis服务器时间, 不受各节点时钟影响; 没有时间信息的旧数据不判断
+local time = redis.call('hmget', timeKey, 'begin', 'end', 'epoch')
+local epoch = tonumber(time[3]) or 0
+if (time[1] and time[2]) then
+    local now = redis.call('time')
+    local nowMillis = tonumber(now[1]) * 1000 + math.floor(tonumber(now[2]) / 1000)
+    if (nowMillis < tonumber(time[1])) then
+        -- 秒杀尚未开始，返回4
+        return {4, epoch}
+    end
+    if (nowMillis > tonumber(time[2])) then
+        -- 秒杀已经结束，返回5
+        return {5, epoch}
+    end
+end
+-- 2.1 判断用户是否下单 sismember orderKey userId命令，判断当前key集合中，是否存在该value；返回1存在，0不存在
+if (redis.call('sismember', orderKey, userId) == 1) then
+    -- 2.2 存在说明是重复下单，返回2
+    return {2, epoch}
+end
+-- 2.3 保存用户, 先占住一人一单的资格
+redis.call('sadd', orderKey, userId)
+-- 2.4 判断主桶库存是否充足, 库存不存在(未预热或已被清空)时按库存不足处理
+local stock = tonumber(redis.call('get', stockKey))  --将get的value先转为数字类型才能判断比较
+if (stock == nil or stock <= 0)  then
+    -- 2.5 主桶库存不足，返回3, 由调用方从其他桶扣减库存, 全部不足或出错时释放资格
+    -- 其他桶位于不同的slot, 集群中不能在本脚本内访问, 回退不是原子的, 见VoucherOrderServiceImpl.takeFromOtherBuckets
+    return {3, epoch}
+end
+-- 2.6 扣库存
+redis.call('incrby', stockKey, -1)
+-- 2.7 发送订单消息到队列, 与扣库存在同一个脚本中, 保证资格判断和下单消息不会丢失其一 xadd stream.orders:{桶号} * k1 v1 k2 v2 ...
+redis.call('xadd', streamKey, '*', 'userId', userId, 'voucherId', voucherId, 'id', orderId)
+return {0, epoch}
@@ -0,0 +1,7 @@
+-- 释放以token为值的简单锁, 值与获取锁时写入的token相同才删除, 不会删除其他线程或节点的锁
+-- KEYS[1] 锁的key
+-- ARGV[1] 获取锁时写入的token
+if (redis.call('get', KEYS[1]) == ARGV[1]) then
+    return redis.call('del', KEYS[1])
+end
+return 0
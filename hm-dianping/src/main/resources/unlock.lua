@@ -0,0 +1,17 @@
+-- 可重入锁解锁, 只有持有者可以释放
+-- KEYS[1] 锁的key, KEYS[2] 解锁通知频道
+-- ARGV[1] 持有者标识, ARGV[2] 锁的有效期(毫秒)
+if (redis.call('hexists', KEYS[1], ARGV[1]) == 0) then
+    -- 不是自己持有的锁(或已过期), 返回nil
+    return nil
+end
+local count = redis.call('hincrby', KEYS[1], ARGV[1], -1)
+if (count > 0) then
+    -- 仍处于重入中, 重置有效期, 返回0
+    redis.call('pexpire', KEYS[1], ARGV[2])
+    return 0
+end
+-- 完全释放, 通知等待的线程, 返回1
+redis.call('del', KEYS[1])
+redis.call('publish', KEYS[2], KEYS[1])
+return 1
@@ -0,0 +1,289 @@
+package com.hmdp.loadtest;
+
+import cn.hutool.core.io.FileUtil;
+import cn.hutool.json.JSONUtil;
+import cn.hutool.core.net.NetUtil;
+import com.hmdp.HmDianPingApplication;
+import com.hmdp.dto.Result;
+import com.hmdp.utils.SeckillBuckets;
+import redis.embedded.RedisServer;
+import org.springframework.boot.builder.SpringApplicationBuilder;
+import org.springframework.boot.web.context.WebServerApplicationContext;
+import org.springframework.context.ConfigurableApplicationContext;
+import org.springframework.data.redis.core.RedisCallback;
+import org.springframework.data.redis.core.StringRedisTemplate;
+import org.springframework.http.HttpEntity;
+import org.springframework.http.HttpHeaders;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.web.client.RestTemplate;
+
+import javax.sql.DataSource;
+import java.nio.charset.StandardCharsets;
+import java.time.LocalDateTime;
+import java.util.*;
+import java.util.concurrent.*;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static com.hmdp.utils.RedisConstants.LOGIN_USER_KEY;
+import static com.hmdp.utils.SystemConstants.SECKILL_STOCK_BUCKETS;
+
+/**
+ * 秒杀接口的端到端压测
+ * 在进程内启动应用, mysql使用H2(MySQL兼容模式), redis使用embedded-redis自带的redis-server, 不依赖外部环境
+ * 创建库存为stock的秒杀券, users个用户各发送requests-per-user次下单请求, 由concurrency个虚拟用户并发执行
+ * 输出延迟分位数、吞吐量和订单队列的消费耗时, 最后校验没有超卖、一人一单、数据库与redis库存一致, 校验失败时退出码为1
+ * <pre>
+ * java -jar loadtest/target/loadtest.jar --users=5000 --stock=100 --concurrency=200 --requests-per-user=2
+ * </pre>
+ * 绝对数值受H2和压测客户端与应用在同一进程影响, 只用于同一环境下的前后对比
+ */
+public class SeckillLoadTest {
+
+    private final int users;
+    private final int stock;
+    private final int concurrency;
+    private final int requestsPerUser;
+    private final long drainTimeoutMillis;
+    private final String output;
+
+    private StringRedisTemplate stringRedisTemplate;
+    private JdbcTemplate jdbcTemplate;
+    private final RestTemplate restTemplate = new RestTemplate();
+    private String baseUrl;
+
+    public SeckillLoadTest(Map<String, String> options) {
+        this.users = Integer.parseInt(options.getOrDefault("users", "2000"));
+        this.stock = Integer.parseInt(options.getOrDefault("stock", "100"));
+        this.concurrency = Integer.parseInt(options.getOrDefault("concurrency", "200"));
+        this.requestsPerUser = Integer.parseInt(options.getOrDefault("requests-per-user", "1"));
+        this.drainTimeoutMillis = TimeUnit.SECONDS.toMillis(Long.parseLong(options.getOrDefault("drain-timeout", "60")));
+        this.output = options.getOrDefault("output", "loadtest-result.json");
+    }
+
+    public static void main(String[] args) throws Exception {
+        Map<String, String> options = new HashMap<>();
+        for (String arg : args) {
+            if (arg.startsWith("--") && arg.contains("=")) {
+                options.put(arg.substring(2, arg.indexOf('=')), arg.substring(arg.indexOf('=') + 1));
+            }
+        }
+        int redisPort = NetUtil.getUsableLocalPort();
+        RedisServer redisServer = RedisServer.newRedisServer()
+                .port(redisPort)
+                .setting("bind 127.0.0.1")
+                .setting("save \"\"")
+                .build();
+        redisServer.start();
+        boolean passed = false;
+        try (ConfigurableApplicationContext context = start(redisPort)) {
+            passed = new SeckillLoadTest(options).run(context);
+        } finally {
+            redisServer.stop();
+            // 应用的非守护线程不会自动退出
+            System.exit(passed ? 0 : 1);
+        }
+    }
+
+    private static ConfigurableApplicationContext start(int redisPort) {
+        // 以命令行参数传入, 优先级高于application.yaml
+        Map<String, Object> properties = new LinkedHashMap<>();
+        properties.put("server.port", 0);
+        properties.put("spring.datasource.driver-class-name", "org.h2.Driver");
+        properties.put("spring.datasource.url", "jdbc:h2:mem:hmdp;MODE=MySQL;DATABASE_TO_LOWER=TRUE;DB_CLOSE_DELAY=-1;"
+                + "INIT=RUNSCRIPT FROM 'classpath:loadtest-schema.sql'");
+        properties.put("spring.datasource.username", "sa");
+        properties.put("spring.datasource.password", "");
+        properties.put("spring.redis.host", "127.0.0.1");
+        properties.put("spring.redis.port", redisPort);
+        properties.put("spring.redis.password", "");
+        properties.put("logging.level.com.hmdp", "info");
+        String[] args = properties.entrySet().stream()
+                .map(entry -> "--" + entry.getKey() + "=" + entry.getValue())
+                .toArray(String[]::new);
+        return new SpringApplicationBuilder(HmDianPingApplication.class).run(args);
+    }
+
+    public boolean run(ConfigurableApplicationContext context) throws InterruptedException {
+        stringRedisTemplate = context.getBean(StringRedisTemplate.class);
+        jdbcTemplate = new JdbcTemplate(context.getBean(DataSource.class));
+        baseUrl = "http://localhost:" + ((WebServerApplicationContext) context).getWebServer().getPort();
+
+        // 1. 准备秒杀券和登录用户
+        Long voucherId = createVoucher();
+        createUsers();
+
+        // 2. 并发下单
+        int total = users * requestsPerUser;
+        long[] latencies = new long[total];
+        AtomicInteger success = new AtomicInteger();
+        AtomicInteger errors = new AtomicInteger();
+        Map<String, AtomicInteger> failures = new ConcurrentHashMap<>();
+        AtomicInteger next = new AtomicInteger();
+        ExecutorService executor = Executors.newFixedThreadPool(concurrency);
+        CountDownLatch startGate = new CountDownLatch(1);
+        CountDownLatch done = new CountDownLatch(concurrency);
+        // 每个虚拟用户循环领取下一个请求, 同一用户的多次请求分散在不同虚拟用户中
+        for (int i = 0; i < concurrency; i++) {
+            executor.execute(() -> {
+                try {
+                    startGate.await();
+                    int index;
+                    while ((index = next.getAndIncrement()) < total) {
+                        long userId = index % users + 1;
+                        long begin = System.nanoTime();
+                        try {
+                            Result result = seckill(voucherId, userId);
+                            if (Boolean.TRUE.equals(result.getSuccess())) {
+                                success.incrementAndGet();
+                            } else {
+                                failures.computeIfAbsent(result.getErrorMsg(), k -> new AtomicInteger()).incrementAndGet();
+                            }
+                        } catch (Exception e) {
+                            errors.incrementAndGet();
+                        }
+                        latencies[index] = System.nanoTime() - begin;
+                    }
+                } catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                } finally {
+                    done.countDown();
+                }
+            });
+        }
+        long begin = System.nanoTime();
+        startGate.countDown();
+        done.await();
+        long elapsed = System.nanoTime() - begin;
+        executor.shutdown();
+
+        // 3. 等待订单队列消费完成
+        int expectedOrders = Math.min(stock, users);
+        long drainBegin = System.currentTimeMillis();
+        long orders = countOrders(voucherId);
+        while (orders < success.get() && System.currentTimeMillis() - drainBegin < drainTimeoutMillis) {
+            Thread.sleep(20);
+            orders = countOrders(voucherId);
+        }
+        long drainMillis = System.currentTimeMillis() - drainBegin;
+
+        // 4. 正确性校验
+        Integer dbStock = jdbcTemplate.queryForObject(
+                "SELECT stock FROM tb_seckill_voucher WHERE voucher_id = ?", Integer.class, voucherId);
+        long redisStock = redisStock(voucherId);
+        Long duplicates = jdbcTemplate.queryForObject("SELECT COUNT(*) FROM (SELECT user_id FROM tb_voucher_order "
+                + "WHERE voucher_id = ? GROUP BY user_id, voucher_id HAVING COUNT(*) > 1) t", Long.class, voucherId);
+        List<String> violations = new ArrayList<>();
+        check(violations, success.get() == expectedOrders, "下单成功数" + success.get() + " != " + expectedOrders);
+        check(violations, orders == expectedOrders, "订单数" + orders + " != " + expectedOrders);
+        check(violations, dbStock != null && dbStock == redisStock, "数据库库存" + dbStock + " != redis库存" + redisStock);
+        check(violations, dbStock != null && dbStock == stock - expectedOrders,
+                "数据库库存" + dbStock + " != " + (stock - expectedOrders));
+        check(violations, duplicates != null && duplicates == 0, "重复订单" + duplicates + "组");
+        check(violations, errors.get() == 0, "请求异常" + errors.get() + "次");
+
+        // 5. 输出结果
+        Arrays.sort(latencies);
+        Map<String, Object> report = new LinkedHashMap<>();
+        report.put("users", users);
+        report.put("stock", stock);
+        report.put("concurrency", concurrency);
+        report.put("requests", total);
+        report.put("success", success.get());
+        report.put("errors", errors.get());
+        Map<String, Object> failureCounts = new TreeMap<>();
+        failures.forEach((message, count) -> failureCounts.put(message, count.get()));
+        report.put("failures", failureCounts);
+        report.put("throughput", Math.round(total / (elapsed / 1e9)));
+        report.put("p50Millis", percentile(latencies, 0.50));
+        report.put("p90Millis", percentile(latencies, 0.90));
+        report.put("p99Millis", percentile(latencies, 0.99));
+        report.put("maxMillis", percentile(latencies, 1.0));
+        report.put("drainMillis", drainMillis);
+        report.put("orders", orders);
+        report.put("dbStock", dbStock);
+        report.put("redisStock", redisStock);
+        report.put("duplicates", duplicates);
+        report.put("violations", violations);
+        report.put("passed", violations.isEmpty());
+        String json = JSONUtil.toJsonPrettyStr(report);
+        System.out.println(json);
+        FileUtil.writeString(json, output, StandardCharsets.UTF_8);
+        return violations.isEmpty();
+    }
+
+    private Long createVoucher() {
+        Map<String, Object> voucher = new HashMap<>();
+        voucher.put("shopId", 1L);
+        voucher.put("title", "压测秒杀券");
+        voucher.put("payValue", 8000L);
+        voucher.put("actualValue", 10000L);
+        voucher.put("type", 1);
+        voucher.put("stock", stock);
+        LocalDateTime now = LocalDateTime.now();
+        voucher.put("beginTime", now.minusMinutes(1).withNano(0).toString());
+        voucher.put("endTime", now.plusHours(1).withNano(0).toString());
+        Result result = restTemplate.postForObject(baseUrl + "/voucher/seckill", voucher, Result.class);
+        if (result == null || !Boolean.TRUE.equals(result.getSuccess())) {
+            throw new IllegalStateException("创建秒杀券失败: " + (result == null ? null : result.getErrorMsg()));
+        }
+        return Long.valueOf(result.getData().toString());
+    }
+
+    // 与UserServiceImpl#login写入的格式一致, token为用户id
+    private void createUsers() {
+        stringRedisTemplate.executePipelined((RedisCallback<Object>) connection -> {
+            for (long userId = 1; userId <= users; userId++) {
+                Map<byte[], byte[]> user = new HashMap<>(4);
+                user.put(bytes("id"), bytes(String.valueOf(userId)));
+                user.put(bytes("nickName"), bytes("user_" + userId));
+                user.put(bytes("icon"), bytes(""));
+                connection.hashCommands().hMSet(bytes(LOGIN_USER_KEY + token(userId)), user);
+            }
+            return null;
+        });
+    }
+
+    private Result seckill(Long voucherId, long userId) {
+        HttpHeaders headers = new HttpHeaders();
+        headers.set("authorization", token(userId));
+        return restTemplate.postForObject(baseUrl + "/voucher-order/seckill/" + voucherId,
+                new HttpEntity<>(headers), Result.class);
+    }
+
+    private long countOrders(Long voucherId) {
+        Long count = jdbcTemplate.queryForObject(
+                "SELECT COUNT(*) FROM tb_voucher_order WHERE voucher_id = ?", Long.class, voucherId);
+        return count == null ? 0 : count;
+    }
+
+    private long redisStock(Long voucherId) {
+        long total = 0;
+        for (int bucket = 0; bucket < SECKILL_STOCK_BUCKETS; bucket++) {
+            String value = stringRedisTemplate.opsForValue().get(SeckillBuckets.stockKey(voucherId, bucket));
+            total += value == null ? 0 : Long.parseLong(value);
+        }
+        return total;
+    }
+
+    private static void check(List<String> violations, boolean condition, String message) {
+        if (!condition) {
+            violations.add(message);
+        }
+    }
+
+    private static double percentile(long[] sorted, double percentile) {
+        if (sorted.length == 0) {
+            return 0;
+        }
+        int index = (int) Math.ceil(percentile * sorted.length) - 1;
+        return sorted[Math.max(index, 0)] / 1e6;
+    }
+
+    private static String token(long userId) {
+        return "loadtest-" + userId;
+    }
+
+    private static byte[] bytes(String value) {
+        return value.getBytes(StandardCharsets.UTF_8);
+    }
+}
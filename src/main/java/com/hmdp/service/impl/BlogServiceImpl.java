@@ -1,205 +0,0 @@
-package com.hmdp.service.impl;
-
-import cn.hutool.core.bean.BeanUtil;
-import cn.hutool.core.util.BooleanUtil;
-import cn.hutool.core.util.StrUtil;
-import com.baomidou.mybatisplus.extension.plugins.pagination.Page;
-import com.hmdp.dto.Result;
-import com.hmdp.dto.ScrollResult;
-import com.hmdp.dto.UserDTO;
-import com.hmdp.entity.Blog;
-import com.hmdp.entity.Follow;
-import com.hmdp.entity.User;
-import com.hmdp.mapper.BlogMapper;
-import com.hmdp.service.IBlogService;
-import com.baomidou.mybatisplus.extension.service.impl.ServiceImpl;
-import com.hmdp.service.IFollowService;
-import com.hmdp.service.IUserService;
-import com.hmdp.utils.RedisConstants;
-import com.hmdp.utils.SystemConstants;
-import com.hmdp.utils.UserHolder;
-import io.netty.util.internal.StringUtil;
-import org.springframework.beans.BeanUtils;
-import org.springframework.data.redis.core.StringRedisTemplate;
-import org.springframework.data.redis.core.ZSetOperations;
-import org.springframework.stereotype.Service;
-
-import javax.annotation.Resource;
-import java.util.ArrayList;
-import java.util.Collections;
-import java.util.List;
-import java.util.Set;
-import java.util.stream.Collectors;
-
-/**
- * <p>
- *  服务实现类
- * </p>
- *
- * @author 虎哥
- * @since 2021-12-22
- */
-@Service
-public class BlogServiceImpl extends ServiceImpl<BlogMapper, Blog> implements IBlogService {
-
-    @Resource
-    private IUserService userService;
-
-    @Resource
-    private StringRedisTemplate stringRedisTemplate;
-
-    @Resource
-    private IFollowService followService;
-
-
-    @Override
-    public Result queryHotBlog(Integer current) {
-        // 根据用户查询
-        Page<Blog> page = query()
-                .orderByDesc("liked")
-                .page(new Page<>(current, SystemConstants.MAX_PAGE_SIZE));
-        // 获取当前页数据
-        List<Blog> records = page.getRecords();
-        // 查询用户
-        records.forEach(blog -> {
-            this.queryBlogUser(blog);
-            this.isBlogLiked(blog);
-        });
-        return Result.ok(records);
-    }
-
-    @Override
-    public Result queryBlogById(Long id) {
-        Blog blog = getById(id);
-        if (blog == null)
-            return Result.fail("博客不存在");
-
-        queryBlogUser(blog);
-        isBlogLiked(blog);
-        return Result.ok(blog);
-    }
-
-    private void isBlogLiked(Blog blog) {
-        UserDTO user = UserHolder.getUser();
-        if (user == null) return;
-        // 2. 判断用户是否已经点赞
-        Long userId = user.getId();
-        String key = "blog:liked" + blog.getId();
-        Double isMember = stringRedisTemplate.opsForZSet().score(key, userId.toString());
-        blog.setIsLike(isMember != null);
-    }
-
-    @Override
-    public Result likeBlog(Long id) {
-        // 1. 获取登录用户
-        Long userId = UserHolder.getUser().getId();
-        // 2. 判断用户是否已经点赞
-        String key = RedisConstants.BLOG_LIKED_KEY + id;
-        Double isMember = stringRedisTemplate.opsForZSet().score(key, userId.toString());
-        // 3. 如果未点赞则可以点赞
-        if (isMember == null) {
-            // 3.1 数据库点赞数+1
-            boolean isSuccess = update().setSql("liked = liked + 1").eq("id", id).update();
-            // 3.2 保存用户到redis的set集合
-            if (isSuccess){
-                stringRedisTemplate.opsForZSet().add(key, userId.toString(), System.currentTimeMillis());
-            }
-
-        }
-        // 4.1 数据库点赞数-1
-        else {
-            // 4. 如果已经点赞, 取消点赞
-            boolean isSuccess = update().setSql("liked = liked - 1").eq("id", id).update();
-            // 4.2 移除set集合
-            if (isSuccess)
-                stringRedisTemplate.opsForZSet().remove(key, userId.toString());
-        }
-
-        return Result.ok();
-    }
-
-    @Override
-    public Result queryBlogLikes(Long id) {
-        String key = RedisConstants.BLOG_LIKED_KEY + id;
-        Set<String> top5 = stringRedisTemplate.opsForZSet().range(key, 0, 4);
-        if (top5 == null || top5.isEmpty()){
-            return Result.ok(Collections.emptyList());
-        }
-        List<Long> ids = top5.stream().map(Long::valueOf).collect(Collectors.toList());
-        String idStr = StrUtil.join(",", ids);
-        List<UserDTO> userDTOS = userService.query().in("id", ids).last("ORDER BY FIELD(id," + idStr + ")").list().stream().map(user -> BeanUtil.copyProperties(user, UserDTO.class))
-                .collect(Collectors.toList());
-
-        return Result.ok(userDTOS);
-    }
-
-    @Override
-    public Result saveBlog(Blog blog) {
-        // 获取登录用户
-        UserDTO user = UserHolder.getUser();
-        blog.setUserId(user.getId());
-        // 保存探店笔记
-        boolean isSuccess = save(blog);
-        if (!isSuccess) return Result.fail("新增失败");
-        // 查询所有粉丝
-        List<Follow> follows = followService.query().eq("follow_user_id", user.getId()).list();
-        for (Follow follow : follows) {
-            Long userId = follow.getUserId();
-            // 推送笔记id给所有粉丝
-            String key = "feed:" + userId;
-            stringRedisTemplate.opsForZSet().add(key, blog.getId().toString(), System.currentTimeMillis());
-        }
-
-        // 返回id
-        return Result.ok(blog.getId());
-
-    }
-
-    @Override
-    public Result queryBlogOfFollow(Long max, Integer offset) {
-        // 1. 获取当前用户
-        Long userId = UserHolder.getUser().getId();
-        // 2. 查询收件箱
-        String key = RedisConstants.FEED_KEY + userId;
-        Set<ZSetOperations.TypedTuple<String>> typedTuples = stringRedisTemplate.opsForZSet().reverseRangeByScoreWithScores(key, 0, max, offset, 3);
-        // 3. 解析数据
-        if (typedTuples == null || typedTuples.isEmpty()) return Result.ok();
-        List<Long> ids = new ArrayList<>(typedTuples.size());
-        long minTime = 0;
-        int os = 1;
-
-        for (ZSetOperations.TypedTuple<String> tuple : typedTuples) {
-            ids.add(Long.valueOf(tuple.getValue()));
-
-            long time = tuple.getScore().longValue();
-            if (time == minTime){
-                os++;
-            }
-            else {
-                minTime = time;
-                os = 1;
-            }
-        }
-        // 4. 查询blog
-        String idStr = StrUtil.join(",", ids);
-        List<Blog> blogs = query().in("id", ids).last("ORDER BY FIELD(id, " + idStr + ")").list();
-        for (Blog blog : blogs) {
-            queryBlogUser(blog);
-            isBlogLiked(blog);
-        }
-        // 5. 封装返回
-        ScrollResult result = new ScrollResult();
-        result.setList(blogs);
-        result.setOffset(os);
-        result.setMinTime(minTime);
-
-        return Result.ok(result);
-    }
-
-    private void queryBlogUser(Blog blog) {
-        Long userId = blog.getUserId();
-        User user = userService.getById(userId);
-        blog.setName(user.getNickName());
-        blog.setIcon(user.getIcon());
-    }
-}
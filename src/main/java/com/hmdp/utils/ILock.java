@@ -1,8 +0,0 @@
-package com.hmdp.utils;
-
-public interface ILock {
-
-    boolean tryLock(long timeoutSec);
-
-    void unlock();
-}
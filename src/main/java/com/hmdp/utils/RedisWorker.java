@@ -1,36 +0,0 @@
-package com.hmdp.utils;
-
-import org.springframework.data.redis.core.StringRedisTemplate;
-import org.springframework.stereotype.Component;
-
-import java.time.LocalDateTime;
-import java.time.ZoneOffset;
-import java.time.format.DateTimeFormatter;
-
-@Component
-public class RedisWorker {
-
-    private static final long BEGIN_TIMESTAMP = 1705881600L;
-    private static final int COUNT_BITS = 32;
-    private final StringRedisTemplate stringRedisTemplate;
-
-    public RedisWorker(StringRedisTemplate stringRedisTemplate) {
-        this.stringRedisTemplate = stringRedisTemplate;
-    }
-
-    public long nextId(String keyPrefix){
-        // 1. 生成时间戳
-        LocalDateTime now = LocalDateTime.now();
-        long nowSecond = now.toEpochSecond(ZoneOffset.UTC);
-        long timeStamp = nowSecond - BEGIN_TIMESTAMP;
-
-        // 2. 生成序列号
-        String date = now.format(DateTimeFormatter.ofPattern("yyyy:MM:dd"));
-        long count = stringRedisTemplate.opsForValue().increment("icr:" + keyPrefix + ":" + date);
-
-        // 3. 拼接并返回
-
-        return timeStamp << COUNT_BITS | count;
-    }
-
-}
@@ -1,47 +0,0 @@
-package com.hmdp.utils;
-
-import cn.hutool.core.lang.UUID;
-import cn.hutool.core.util.BooleanUtil;
-import org.springframework.data.redis.core.StringRedisTemplate;
-
-import java.util.concurrent.TimeUnit;
-
-public class SimpleRedisLock implements ILock{
-
-    private StringRedisTemplate stringRedisTemplate;
-    private String name;
-
-    public SimpleRedisLock(String name, StringRedisTemplate stringRedisTemplate) {
-        this.stringRedisTemplate = stringRedisTemplate;
-        this.name = name;
-    }
-
-    private static final String KEY_PREFIX = "lock:";
-    private static final String ID_PREFIX = UUID.randomUUID().toString(true) + "-";
-
-    @Override
-    public boolean tryLock(long timeoutSec) {
-        // 获取线程标识
-        String threadId = ID_PREFIX + Thread.currentThread().getId();
-
-        // 尝试获取锁
-        Boolean success = stringRedisTemplate.
-                opsForValue().
-                setIfAbsent(KEY_PREFIX + name, threadId, timeoutSec, TimeUnit.SECONDS);
-        return BooleanUtil.isTrue(success);
-    }
-
-    @Override
-    public void unlock() {
-        // 获取线程标识
-        String threadId = ID_PREFIX + Thread.currentThread().getId();
-        // 获取所种的标识
-        String id = stringRedisTemplate.opsForValue().get(KEY_PREFIX + name);
-        // 判断标识是否一致
-        if (threadId.equals(id)){
-            // 释放锁
-            stringRedisTemplate.delete(KEY_PREFIX + name);
-        }
-    }
-
-}
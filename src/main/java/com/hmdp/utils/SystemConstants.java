@@ -1,8 +0,0 @@
-package com.hmdp.utils;
-
-public class SystemConstants {
-    public static final String IMAGE_UPLOAD_DIR = "E:\\java_study\\nginx-1.18.0\\nginx-1.18.0\\html\\hmdp\\imgs";
-    public static final String USER_NICK_NAME_PREFIX = "user_";
-    public static final int DEFAULT_PAGE_SIZE = 5;
-    public static final int MAX_PAGE_SIZE = 10;
-}